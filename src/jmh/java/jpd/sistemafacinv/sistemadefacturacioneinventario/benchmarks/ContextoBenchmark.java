@@ -0,0 +1,145 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.SistemadefacturacioneinventarioApplication;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Receta;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.RecetaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Usuario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.CierreInventarioDiarioRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EmpresaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ProductoRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.RecetaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.UsuarioRepositorio;
+
+/**
+ * Aplicación completa sobre H2 (configuración de src/test/resources) con un
+ * catálogo del tamaño de un restaurante real: ingredientes, productos con
+ * receta y productos de reventa. Se levanta una vez por fork.
+ */
+@State(Scope.Benchmark)
+public class ContextoBenchmark {
+
+    static final int INGREDIENTES = 300;
+    static final int PRODUCTOS_CON_RECETA = 300;
+    static final int PRODUCTOS_SIN_RECETA = 100;
+    static final int INGREDIENTES_POR_RECETA = 4;
+    // Stock suficiente para que las ventas nunca fallen durante la medición
+    static final double STOCK_INICIAL = 1_000_000_000;
+
+    ConfigurableApplicationContext contexto;
+    Long empresaId;
+    Usuario usuario;
+    List<Producto> productos;
+    List<Long> productosConReceta;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(SistemadefacturacioneinventarioApplication.class)
+                .run("--server.port=0", "--spring.jpa.show-sql=false", "--logging.level.root=WARN");
+
+        Empresa empresa = bean(EmpresaRepositorio.class).save(Empresa.builder()
+                .nombre("Benchmark")
+                .subdominio("benchmark")
+                .estado(true)
+                .fechaCreacion(LocalDate.now())
+                .build());
+        empresaId = empresa.getId();
+
+        usuario = bean(UsuarioRepositorio.class).save(Usuario.builder()
+                .empresa(empresa)
+                .nombreUsuario("cajero-benchmark")
+                .contrasenna("x")
+                .rol("CAJERO")
+                .activo(true)
+                .build());
+
+        // Día anterior cerrado: requisito para facturar
+        bean(CierreInventarioDiarioRepositorio.class).save(CierreInventarioDiario.builder()
+                .empresa(empresa)
+                .usuario(usuario)
+                .fecha(LocalDate.now().minusDays(1))
+                .estado("COMPLETADO")
+                .detalles(new ArrayList<>())
+                .build());
+
+        List<Ingrediente> ingredientes = new ArrayList<>();
+        for (int i = 0; i < INGREDIENTES; i++) {
+            ingredientes.add(Ingrediente.builder()
+                    .empresa(empresa)
+                    .nombre("Ingrediente " + i)
+                    .unidadMedida("GR")
+                    .stockActual(STOCK_INICIAL)
+                    .precio(1 + i % 50)
+                    .activo(true)
+                    .build());
+        }
+        ingredientes = bean(IngredienteRepositorio.class).saveAll(ingredientes);
+
+        RecetaRepositorio recetaRepo = bean(RecetaRepositorio.class);
+        ProductoRepositorio productoRepo = bean(ProductoRepositorio.class);
+        productos = new ArrayList<>();
+        productosConReceta = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS_CON_RECETA; i++) {
+            Receta receta = Receta.builder()
+                    .empresa(empresa)
+                    .nombre("Receta " + i)
+                    .ingredientes(new ArrayList<>())
+                    .build();
+            for (int j = 0; j < INGREDIENTES_POR_RECETA; j++) {
+                receta.getIngredientes().add(RecetaDetalle.builder()
+                        .receta(receta)
+                        .ingrediente(ingredientes.get((i * 7 + j * 13) % INGREDIENTES))
+                        .cantidadIngrediente(10 + j)
+                        .build());
+            }
+            receta = recetaRepo.save(receta);
+
+            Producto producto = productoRepo.save(Producto.builder()
+                    .empresa(empresa)
+                    .nombre("Plato " + i)
+                    .tieneReceta(true)
+                    .receta(receta)
+                    .precioVenta(5000.0 + i)
+                    .stock(0.0)
+                    .activo(true)
+                    .build());
+            productos.add(producto);
+            productosConReceta.add(producto.getId());
+        }
+        for (int i = 0; i < PRODUCTOS_SIN_RECETA; i++) {
+            productos.add(productoRepo.save(Producto.builder()
+                    .empresa(empresa)
+                    .nombre("Bebida " + i)
+                    .tieneReceta(false)
+                    .precioVenta(2000.0 + i)
+                    .stock(STOCK_INICIAL)
+                    .activo(true)
+                    .build()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+}
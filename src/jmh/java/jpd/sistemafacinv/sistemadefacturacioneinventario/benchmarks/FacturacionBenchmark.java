@@ -0,0 +1,98 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.benchmarks;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.ReporteConsumoDTO;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.CierreInventarioDiarioService;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.FacturaServicio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.ProductoServicio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.ReporteConsumoServicio;
+
+/**
+ * Rutas críticas de facturación e inventario medidas sobre el catálogo de
+ * {@link ContextoBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FacturacionBenchmark {
+
+    private static final int LINEAS_POR_FACTURA = 3;
+
+    private FacturaServicio facturaServicio;
+    private ProductoServicio productoServicio;
+    private ReporteConsumoServicio reporteServicio;
+    private CierreInventarioDiarioService cierreService;
+
+    private final SplittableRandom aleatorio = new SplittableRandom(42);
+    // Cada cierre va a un día anterior distinto (los de hoy y ayer ya existen)
+    private int diasAtras = 1;
+
+    @Setup(Level.Trial)
+    public void preparar(ContextoBenchmark ctx) {
+        facturaServicio = ctx.bean(FacturaServicio.class);
+        productoServicio = ctx.bean(ProductoServicio.class);
+        reporteServicio = ctx.bean(ReporteConsumoServicio.class);
+        cierreService = ctx.bean(CierreInventarioDiarioService.class);
+        TenantContext.setCurrentTenant(ctx.empresaId);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        TenantContext.clear();
+    }
+
+    // Venta de caja típica: tres platos con receta
+    @Benchmark
+    public Factura crearFactura(ContextoBenchmark ctx) {
+        Factura factura = new Factura();
+        for (int i = 0; i < LINEAS_POR_FACTURA; i++) {
+            Producto ref = new Producto();
+            ref.setId(ctx.productosConReceta.get(aleatorio.nextInt(ctx.productosConReceta.size())));
+            FacturaDetalle detalle = new FacturaDetalle();
+            detalle.setProducto(ref);
+            detalle.setCantidad(1 + aleatorio.nextInt(3));
+            factura.getFacturaDetalle().add(detalle);
+        }
+        return facturaServicio.crearFactura(factura);
+    }
+
+    // Lo que calcula la pantalla del POS para todo el catálogo
+    @Benchmark
+    public Map<Long, Integer> calcularStockPosible(ContextoBenchmark ctx) {
+        return productoServicio.calcularStockPosible(ctx.productos);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ReporteConsumoDTO generarReporte() {
+        LocalDate hoy = LocalDate.now();
+        return reporteServicio.generarReporte(hoy.minusDays(30), hoy);
+    }
+
+    // Incluye la precarga de detalles (INSERT ... SELECT de ingredientes y productos sin receta)
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CierreInventarioDiario iniciarCierre(ContextoBenchmark ctx) {
+        diasAtras++;
+        return cierreService.iniciarCierreParaFecha(ctx.usuario, LocalDate.now().minusDays(diasAtras));
+    }
+}
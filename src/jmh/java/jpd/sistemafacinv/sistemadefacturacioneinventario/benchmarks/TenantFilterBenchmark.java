@@ -0,0 +1,30 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantFilter;
+
+/**
+ * Resolución del subdominio que hace el filtro en cada petición (sin Spring).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TenantFilterBenchmark {
+
+    @Param({ "restaurante.mibombay.com", "www.mibombay.com", "demo.localhost", "192.168.1.20" })
+    public String host;
+
+    @Benchmark
+    public String extraerSubdominio() {
+        return TenantFilter.extraerSubdominio(host);
+    }
+}
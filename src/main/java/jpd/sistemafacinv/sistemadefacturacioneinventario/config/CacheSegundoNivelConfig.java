@@ -0,0 +1,84 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.config;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Cliente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Receta;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.RecetaDetalle;
+
+/**
+ * Caché de segundo nivel de Hibernate (Caffeine) para el catálogo: empresa,
+ * recetas y clientes cambian poco y se leen en cada venta. Productos e
+ * ingredientes no se cachean: llevan el stock, que cambia en cada venta.
+ * Las claves son el ID de la entidad o, en las consultas, sus parámetros
+ * (empresaId incluido), así que una empresa nunca recibe datos de otra.
+ * Hibernate invalida al guardar y con los UPDATE masivos; la vigencia acota
+ * cuánto tarda otro nodo en ver un cambio, porque la caché es local.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    private static final List<Class<?>> CATALOGO = List.of(
+            Empresa.class, Receta.class, RecetaDetalle.class, Cliente.class);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheSegundoNivel(
+            @Value("${sistema.cache.catalogo.max-entradas:10000}") long maxEntradas,
+            @Value("${sistema.cache.catalogo.vigencia-minutos:10}") long vigenciaMinutos,
+            @Value("${sistema.cache.consultas.max-entradas:2000}") long maxConsultas) {
+        // Un proveedor propio por contexto: el de Caching.getCachingProvider devuelve el mismo CacheManager
+        // a toda la JVM, y un segundo contexto abierto a la vez (tests con otra configuración) fallaría
+        // al crear regiones que ya existen
+        CachingProvider proveedor = new CaffeineCachingProvider();
+        CacheManager cacheManager = proveedor.getCacheManager(proveedor.getDefaultURI(), getClass().getClassLoader());
+
+        // Una región por entidad (nombre de la clase) y la colección de ingredientes de cada receta
+        for (Class<?> entidad : CATALOGO) {
+            crearRegion(cacheManager, entidad.getName(), maxEntradas, vigenciaMinutos);
+        }
+        crearRegion(cacheManager, Receta.class.getName() + ".ingredientes", maxEntradas, vigenciaMinutos);
+
+        crearRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                maxConsultas, vigenciaMinutos);
+        // Última escritura de cada tabla: una entrada por tabla, sin tope ni vencimiento
+        // (si se perdiera, una consulta cacheada se daría por vigente)
+        crearRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 0, 0);
+
+        return cacheManager;
+    }
+
+    // Hibernate usa estas regiones en lugar de crear las suyas sin límite
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelHibernate(CacheManager cacheSegundoNivel) {
+        return propiedades -> propiedades.put(ConfigSettings.CACHE_MANAGER, cacheSegundoNivel);
+    }
+
+    private static void crearRegion(CacheManager cacheManager, String region, long maxEntradas, long vigenciaMinutos) {
+        CaffeineConfiguration<Object, Object> configuracion = new CaffeineConfiguration<>();
+        // Hibernate guarda el estado desarmado de la entidad: no hace falta copiarlo en cada lectura
+        configuracion.setStoreByValue(false);
+        if (maxEntradas > 0) {
+            configuracion.setMaximumSize(OptionalLong.of(maxEntradas));
+        }
+        if (vigenciaMinutos > 0) {
+            configuracion.setExpireAfterWrite(OptionalLong.of(TimeUnit.MINUTES.toNanos(vigenciaMinutos)));
+        }
+        cacheManager.createCache(region, configuracion);
+    }
+}
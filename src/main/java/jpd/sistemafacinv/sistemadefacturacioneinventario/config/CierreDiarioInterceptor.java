@@ -14,7 +14,7 @@ import org.springframework.web.servlet.HandlerInterceptor;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.CierreInventarioDiarioRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.CierreEstadoCache;
 
 @Component
 public class CierreDiarioInterceptor implements HandlerInterceptor {
@@ -22,7 +22,7 @@ public class CierreDiarioInterceptor implements HandlerInterceptor {
     private static final Logger log = LoggerFactory.getLogger(CierreDiarioInterceptor.class);
 
     @Autowired
-    private CierreInventarioDiarioRepositorio cierreRepo;
+    private CierreEstadoCache cierreEstadoCache;
 
     private static final int HORA_CAMBIO_DIA = 5; // 5:00 AM
 
@@ -77,7 +77,7 @@ public class CierreDiarioInterceptor implements HandlerInterceptor {
         log.debug("📅 Validación de cierre - Fecha: {}, Hora: {}:00", hoy, horaActual);
 
         // 3. PRIMERO: Verificar si HOY ya está cerrado (BLOQUEO INMEDIATO)
-        boolean hoyCerrado = cierreRepo.existeCierrePorFechaYEstadoYEmpresaId(hoy, "COMPLETADO", empresaId);
+        boolean hoyCerrado = cierreEstadoCache.diaCerrado(empresaId, hoy);
 
         if (hoyCerrado) {
             log.warn("🚫 ¡HOY YA ESTÁ CERRADO! - Bloqueando acceso. Empresa ID: {}, Fecha: {}", empresaId, hoy);
@@ -104,8 +104,7 @@ public class CierreDiarioInterceptor implements HandlerInterceptor {
         }
 
         // 4. Validar cierre
-        boolean diaValidadoCerrado = cierreRepo.existeCierrePorFechaYEstadoYEmpresaId(fechaParaValidar, "COMPLETADO",
-                empresaId);
+        boolean diaValidadoCerrado = cierreEstadoCache.diaCerrado(empresaId, fechaParaValidar);
         log.debug("¿Día {} cerrado?: {} (Empresa ID: {})", fechaParaValidar, diaValidadoCerrado, empresaId);
 
         if (!diaValidadoCerrado) {
@@ -0,0 +1,27 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantTaskDecorator;
+
+// Hilos dedicados para los cierres definitivos: no ocupan hilos de las peticiones HTTP
+@Configuration
+public class CierreEjecutorConfig {
+
+    @Bean(name = "cierreExecutor")
+    public ThreadPoolTaskExecutor cierreExecutor(@Value("${sistema.cierre.hilos:2}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("cierre-");
+        executor.setTaskDecorator(new TenantTaskDecorator());
+        // Al apagar, dejar terminar el cierre en curso; los que queden en cola se retoman al arrancar
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+}
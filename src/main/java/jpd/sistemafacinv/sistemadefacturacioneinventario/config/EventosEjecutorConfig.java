@@ -0,0 +1,28 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantTaskDecorator;
+
+// Hilos que procesan la bandeja de salida (una empresa a la vez por hilo)
+@Configuration
+public class EventosEjecutorConfig {
+
+    @Bean(name = "eventosExecutor")
+    public ThreadPoolTaskExecutor eventosExecutor(@Value("${sistema.eventos.hilos:2}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        // Una tarea por empresa con eventos: si la cola se llena, la revisión periódica la retoma
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("eventos-");
+        executor.setTaskDecorator(new TenantTaskDecorator());
+        // Lo que no alcance a procesarse sigue PENDIENTE en BD y se retoma al arrancar
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
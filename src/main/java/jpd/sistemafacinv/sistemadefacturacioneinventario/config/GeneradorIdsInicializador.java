@@ -0,0 +1,90 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.config;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.GeneradorIds;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Las tablas que pasaron de IDENTITY a la tabla generador_ids ya tienen filas: se arranca cada
+// contador por encima del MAX(id) actual para que el primer bloque reservado no choque con ellas.
+// El EntityManagerFactory depende de este bean, así que corre antes de que Hibernate exista y
+// mucho antes de que Tomcat acepte peticiones o corran los CommandLineRunner.
+// Cada ajuste es un UPDATE condicional (o un INSERT que solo gana un nodo): si arrancan dos
+// nodos a la vez, o uno arranca con otro ya atendiendo, el contador nunca retrocede.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class GeneradorIdsInicializador implements InitializingBean {
+
+    // pkColumnValue de cada @TableGenerator = nombre de la tabla de la entidad
+    private static final List<String> TABLAS = List.of(
+            "factura", "factura_detalle", "factura_detalle_proveedor", "receta_detalle");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Hibernate (y con él el primer bloque de IDs) arranca después de este bean
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor generadorIdsAntesDeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor(GeneradorIdsInicializador.class) {
+        };
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        boolean tablaCreada = false;
+        for (String tabla : TABLAS) {
+            // Base nueva o tabla todavía no creada por ddl-auto: no hay filas que respetar
+            if (!existeTabla(tabla)) {
+                continue;
+            }
+            Long maximo = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + tabla, Long.class);
+            if (maximo == null || maximo == 0) {
+                continue;
+            }
+            if (!tablaCreada) {
+                // Misma definición que genera Hibernate para el @TableGenerator (ddl-auto la deja como está)
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + GeneradorIds.TABLA + " ("
+                        + GeneradorIds.COLUMNA_ENTIDAD + " VARCHAR(255) NOT NULL, "
+                        + GeneradorIds.COLUMNA_VALOR + " BIGINT, PRIMARY KEY (" + GeneradorIds.COLUMNA_ENTIDAD + "))");
+                tablaCreada = true;
+            }
+            // Con el optimizador pooled el valor guardado es el tope del bloque: los IDs salen de (valor - ASIGNACION, valor]
+            long minimo = maximo + GeneradorIds.ASIGNACION;
+            if (ajustar(tabla, minimo)) {
+                log.info("🔢 Generador de IDs de {} ajustado a {} (MAX(id) = {})", tabla, minimo, maximo);
+            }
+        }
+    }
+
+    private boolean ajustar(String tabla, long minimo) {
+        try {
+            jdbcTemplate.update("INSERT INTO " + GeneradorIds.TABLA + " (" + GeneradorIds.COLUMNA_ENTIDAD + ", "
+                    + GeneradorIds.COLUMNA_VALOR + ") VALUES (?, ?)", tabla, minimo);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // La fila ya existe (otro nodo o arranques anteriores): solo se sube, nunca se baja
+            return jdbcTemplate.update("UPDATE " + GeneradorIds.TABLA + " SET " + GeneradorIds.COLUMNA_VALOR + " = ? WHERE "
+                    + GeneradorIds.COLUMNA_ENTIDAD + " = ? AND " + GeneradorIds.COLUMNA_VALOR + " < ?",
+                    minimo, tabla, minimo) > 0;
+        }
+    }
+
+    private boolean existeTabla(String tabla) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) conexion -> {
+            try (ResultSet tablas = conexion.getMetaData().getTables(conexion.getCatalog(), conexion.getSchema(),
+                    tabla, new String[] { "TABLE" })) {
+                return tablas.next();
+            }
+        }));
+    }
+}
@@ -0,0 +1,34 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EmpresaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.ResumenDiarioServicio;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Genera el histórico de resumen_diario para las empresas que todavía no lo tienen
+@Component
+@Order(100)
+@Slf4j
+@RequiredArgsConstructor
+public class ResumenDiarioInicializador implements CommandLineRunner {
+
+    private final EmpresaRepositorio empresaRepositorio;
+    private final ResumenDiarioServicio resumenDiarioServicio;
+
+    @Override
+    public void run(String... args) {
+        for (Empresa empresa : empresaRepositorio.findAll()) {
+            try {
+                resumenDiarioServicio.inicializarEmpresa(empresa.getId());
+            } catch (Exception e) {
+                log.error("❌ Error generando resúmenes diarios para empresa ID {}: {}",
+                        empresa.getId(), e.getMessage());
+            }
+        }
+    }
+}
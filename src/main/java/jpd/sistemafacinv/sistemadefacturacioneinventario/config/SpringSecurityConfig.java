@@ -2,6 +2,7 @@ package jpd.sistemafacinv.sistemadefacturacioneinventario.config;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -21,8 +22,23 @@ public class SpringSecurityConfig {
 
         private static final Logger log = LoggerFactory.getLogger(SpringSecurityConfig.class);
 
+        // Actuator (health, prometheus): solo por el puerto de gestión, que escucha en una
+        // interfaz interna. Por el puerto de la aplicación no se publica y /actuator/** cae en la
+        // cadena general (requiere login); sin management.server.port esta cadena no aplica
         @Bean
-        @Order(1) // IMPORTANTE: Se ejecuta primero
+        @Order(0)
+        public SecurityFilterChain actuatorFilterChain(HttpSecurity http,
+                        @Value("${management.server.port:-1}") int puertoGestion) throws Exception {
+                http
+                                .securityMatcher(request -> request.getLocalPort() == puertoGestion)
+                                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+                                .sessionManagement(session -> session
+                                                .sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+                return http.build();
+        }
+
+        @Bean
+        @Order(1) // IMPORTANTE: Se ejecuta antes que la cadena general
         public SecurityFilterChain superAdminFilterChain(HttpSecurity http) throws Exception {
                 log.info("🛡️ Configurando SecurityFilterChain para SUPERADMIN (Orden 1)");
 
@@ -74,7 +90,6 @@ public class SpringSecurityConfig {
                                                                 "/js/**")
                                                 .permitAll()
                                                 .requestMatchers("/error").permitAll()
-
                                                 // 2. PERMISOS POR ROL
                                                 // VENTAS - Solo CAJERO
                                                 .requestMatchers("/dashboard").authenticated()
@@ -0,0 +1,42 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantTaskDecorator;
+
+// Ejecutor de @Async (y de CompletableFuture que lo reciban) y planificador de @Scheduled,
+// ambos con la empresa de quien encola la tarea
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class TareasAsincronasConfig {
+
+    // @Async usa el bean con este nombre cuando hay varios ejecutores
+    @Bean(name = "taskExecutor")
+    public ThreadPoolTaskExecutor taskExecutor(@Value("${sistema.tareas.hilos:4}") int hilos) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("tareas-");
+        executor.setTaskDecorator(new TenantTaskDecorator());
+        return executor;
+    }
+
+    // Las tareas programadas se registran al arrancar, sin empresa: cada ejecución empieza
+    // sin empresa y la que necesite una la fija con TenantContext.runAs
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${sistema.tareas.programadas.hilos:2}") int hilos) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(hilos);
+        scheduler.setThreadNamePrefix("programadas-");
+        scheduler.setTaskDecorator(new TenantTaskDecorator());
+        return scheduler;
+    }
+}
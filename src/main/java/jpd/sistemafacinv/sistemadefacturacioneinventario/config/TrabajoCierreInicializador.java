@@ -0,0 +1,28 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.CierreTrabajoServicio;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Relanza los cierres definitivos que quedaron en cola o interrumpidos (sin latido) en el último apagado
+@Component
+@Order(200)
+@Slf4j
+@RequiredArgsConstructor
+public class TrabajoCierreInicializador implements CommandLineRunner {
+
+    private final CierreTrabajoServicio cierreTrabajoServicio;
+
+    @Override
+    public void run(String... args) {
+        try {
+            cierreTrabajoServicio.reanudarPendientes();
+        } catch (Exception e) {
+            log.error("❌ Error retomando trabajos de cierre pendientes: {}", e.getMessage());
+        }
+    }
+}
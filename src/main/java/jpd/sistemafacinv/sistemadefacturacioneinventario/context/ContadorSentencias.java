@@ -0,0 +1,87 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cuenta las sentencias SQL que ejecuta el hilo actual entre {@link #iniciar()}
+ * y {@link #terminar(Medicion)}. Lo alimenta {@link ContadorSentenciasInspector}.
+ * Las mediciones se pueden anidar: cada sentencia suma en todas las abiertas.
+ */
+public final class ContadorSentencias {
+
+    private static final ThreadLocal<Medicion> ACTUAL = new ThreadLocal<>();
+
+    private ContadorSentencias() {
+    }
+
+    public static Medicion iniciar() {
+        Medicion medicion = new Medicion(ACTUAL.get());
+        ACTUAL.set(medicion);
+        return medicion;
+    }
+
+    public static void terminar(Medicion medicion) {
+        if (medicion.anterior != null) {
+            ACTUAL.set(medicion.anterior);
+        } else {
+            ACTUAL.remove();
+        }
+    }
+
+    static void registrar(String sql) {
+        for (Medicion medicion = ACTUAL.get(); medicion != null; medicion = medicion.anterior) {
+            medicion.registrar(sql);
+        }
+    }
+
+    public static final class Medicion {
+
+        private final Medicion anterior;
+        private final Map<String, Integer> porSentencia = new HashMap<>();
+        private int total;
+        private int consultas;
+        private Long empresaId;
+
+        private Medicion(Medicion anterior) {
+            this.anterior = anterior;
+        }
+
+        private void registrar(String sql) {
+            total++;
+            if (sql.regionMatches(true, 0, "select", 0, 6)) {
+                consultas++;
+            }
+            porSentencia.merge(sql, 1, Integer::sum);
+            // El tenant se fija dentro de la cadena de filtros: se toma el de la primera sentencia con empresa
+            if (empresaId == null) {
+                empresaId = TenantContext.getCurrentTenant();
+            }
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        // Solo los SELECT: es lo que crece con un N+1
+        public int getConsultas() {
+            return consultas;
+        }
+
+        public Long getEmpresaId() {
+            return empresaId;
+        }
+
+        // Texto SQL → veces ejecutado (los parámetros van como ?, así que un N+1 repite la misma clave)
+        public Map<String, Integer> getPorSentencia() {
+            return Collections.unmodifiableMap(porSentencia);
+        }
+
+        public Map.Entry<String, Integer> getMasRepetida() {
+            return porSentencia.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElse(null);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Cuenta las sentencias SQL de cada petición (incluidas las de Spring Security)
+ * y avisa cuando pasan del umbral o cuando una misma sentencia se repite
+ * demasiadas veces, que suele ser un N+1.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ContadorSentenciasFilter implements Filter {
+
+    private static final Logger log = LoggerFactory.getLogger(ContadorSentenciasFilter.class);
+
+    private static final int MAX_LARGO_SQL = 200;
+
+    @Value("${sistema.sql.umbral-sentencias:40}")
+    private int umbralSentencias;
+
+    @Value("${sistema.sql.umbral-repeticiones:10}")
+    private int umbralRepeticiones;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        ContadorSentencias.Medicion medicion = ContadorSentencias.iniciar();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContadorSentencias.terminar(medicion);
+            reportar((HttpServletRequest) request, medicion);
+        }
+    }
+
+    private void reportar(HttpServletRequest request, ContadorSentencias.Medicion medicion) {
+        if (medicion.getTotal() == 0) {
+            return;
+        }
+        Map.Entry<String, Integer> repetida = medicion.getMasRepetida();
+        if (medicion.getTotal() > umbralSentencias || repetida.getValue() >= umbralRepeticiones) {
+            String sql = repetida.getKey().length() > MAX_LARGO_SQL
+                    ? repetida.getKey().substring(0, MAX_LARGO_SQL) + "..."
+                    : repetida.getKey();
+            log.warn("🐢 {} {} ejecutó {} sentencias SQL (empresa ID: {}). Más repetida ({}x): {}",
+                    request.getMethod(), request.getRequestURI(), medicion.getTotal(), medicion.getEmpresaId(),
+                    repetida.getValue(), sql);
+        } else {
+            log.trace("{} {} ejecutó {} sentencias SQL", request.getMethod(), request.getRequestURI(),
+                    medicion.getTotal());
+        }
+    }
+}
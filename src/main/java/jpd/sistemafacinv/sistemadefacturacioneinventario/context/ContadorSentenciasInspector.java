@@ -0,0 +1,18 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate pasa por aquí cada sentencia antes de prepararla: solo se cuenta,
+ * el SQL no se modifica.
+ */
+public class ContadorSentenciasInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String inspect(String sql) {
+        ContadorSentencias.registrar(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,90 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EmpresaRepositorio;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Caché subdominio → ID de empresa para el {@link TenantFilter}.
+ * Las entradas vencen tras unos minutos; los subdominios inexistentes se
+ * recuerdan poco tiempo y se olvidan al crear la empresa correspondiente.
+ */
+@Component
+@RequiredArgsConstructor
+public class EmpresaSubdominioCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EmpresaSubdominioCache.class);
+
+    private static final long VIGENCIA_NO_ENCONTRADO_MS = 30_000;
+    private static final int MAX_ENTRADAS = 1_000;
+
+    private final EmpresaRepositorio empresaRepositorio;
+
+    @Value("${sistema.tenant.cache.vigencia-segundos:300}")
+    private long vigenciaSegundos;
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    // null si el subdominio no corresponde a ninguna empresa
+    public Long buscarEmpresaId(String subdominio) {
+        long ahora = System.currentTimeMillis();
+        Entrada entrada = entradas.get(subdominio);
+        if (entrada != null && entrada.expira > ahora) {
+            return entrada.empresaId;
+        }
+
+        Long empresaId = empresaRepositorio.findBySubdominio(subdominio)
+                .map(Empresa::getId)
+                .orElseGet(() -> "localhost".equals(subdominio)
+                        // localhost sin subdominio (desarrollo): empresa por defecto
+                        ? empresaRepositorio.findById(1L).map(Empresa::getId).orElse(null)
+                        : null);
+
+        if (entradas.size() >= MAX_ENTRADAS) {
+            entradas.values().removeIf(e -> e.expira <= ahora);
+            if (entradas.size() >= MAX_ENTRADAS) {
+                entradas.clear();
+            }
+        }
+        entradas.put(subdominio, new Entrada(empresaId,
+                ahora + (empresaId != null ? vigenciaSegundos * 1000 : VIGENCIA_NO_ENCONTRADO_MS)));
+        log.debug("Subdominio '{}' resuelto en BD - Empresa ID: {}", subdominio, empresaId);
+        return empresaId;
+    }
+
+    // Llamar al crear o modificar una empresa (se aplica tras el commit)
+    public void invalidar(String subdominio) {
+        Runnable accion = () -> entradas.remove(subdominio);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+        log.debug("Subdominio '{}' invalidado en caché", subdominio);
+    }
+
+    private static class Entrada {
+        private final Long empresaId;
+        private final long expira;
+
+        private Entrada(Long empresaId, long expira) {
+            this.empresaId = empresaId;
+            this.expira = expira;
+        }
+    }
+}
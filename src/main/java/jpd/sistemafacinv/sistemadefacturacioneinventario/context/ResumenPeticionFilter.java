@@ -0,0 +1,58 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Un solo evento por petición con los datos clave como pares clave=valor
+ * (método, ruta, estado, duración, empresa, sentencias SQL), en lugar de
+ * líneas sueltas repartidas por filtros y servicios. Los estáticos no se registran.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class ResumenPeticionFilter implements Filter {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenPeticionFilter.class);
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String ruta = httpRequest.getRequestURI();
+        if (!log.isInfoEnabled() || ruta.startsWith("/css/") || ruta.startsWith("/js/")
+                || ruta.equals("/favicon.ico")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        ContadorSentencias.Medicion medicion = ContadorSentencias.iniciar();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContadorSentencias.terminar(medicion);
+            log.atInfo()
+                    .addKeyValue("metodo", httpRequest.getMethod())
+                    .addKeyValue("ruta", ruta)
+                    .addKeyValue("estado", ((HttpServletResponse) response).getStatus())
+                    .addKeyValue("ms", (System.nanoTime() - inicio) / 1_000_000)
+                    .addKeyValue("empresa", httpRequest.getAttribute(TenantFilter.ATRIBUTO_EMPRESA))
+                    .addKeyValue("sql", medicion.getTotal())
+                    .log("peticion");
+        }
+    }
+}
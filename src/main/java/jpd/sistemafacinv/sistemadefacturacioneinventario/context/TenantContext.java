@@ -1,5 +1,7 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
 
+import java.util.function.Supplier;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +50,42 @@ public class TenantContext {
         return hasTenant;
     }
 
+    /**
+     * Ejecuta la acción con la empresa indicada (null = sin empresa) y al
+     * terminar deja el hilo como estaba, aunque la acción falle.
+     * Para hilos de fondo, tareas programadas o recorridos por empresa.
+     */
+    public static void runAs(Long tenantId, Runnable accion) {
+        runAs(tenantId, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    public static <T> T runAs(Long tenantId, Supplier<T> accion) {
+        Long anterior = CURRENT_TENANT.get();
+        setCurrentTenant(tenantId);
+        try {
+            return accion.get();
+        } finally {
+            setCurrentTenant(anterior);
+        }
+    }
+
+    /**
+     * Captura la empresa del hilo actual para ejecutar la tarea en otro hilo
+     * (CompletableFuture, parallel streams, ejecutores sin TenantTaskDecorator).
+     */
+    public static Runnable wrap(Runnable tarea) {
+        Long tenantId = CURRENT_TENANT.get();
+        return () -> runAs(tenantId, tarea);
+    }
+
+    public static <T> Supplier<T> wrap(Supplier<T> tarea) {
+        Long tenantId = CURRENT_TENANT.get();
+        return () -> runAs(tenantId, tarea);
+    }
+
     /**
      * Limpia el contexto al final de la petición.
      * IMPORTANTE: Previene fugas de memoria.
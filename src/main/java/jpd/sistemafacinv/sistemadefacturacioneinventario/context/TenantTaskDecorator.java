@@ -0,0 +1,16 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Lleva la empresa del hilo que encola la tarea al hilo del pool que la
+ * ejecuta. Al terminar, el hilo del pool vuelve a quedar sin empresa, así
+ * una tarea que olvide limpiar no contamina a la siguiente.
+ */
+public class TenantTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable tarea) {
+        return TenantContext.wrap(tarea);
+    }
+}
@@ -0,0 +1,65 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import java.util.Objects;
+
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Usuario;
+
+/**
+ * Principal de la sesión: además de los datos de Spring Security guarda la
+ * empresa y el rol del usuario, para validar el tenant sin volver a la BD.
+ */
+public class UsuarioAutenticado extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long empresaId;
+    private final String rol;
+
+    private UsuarioAutenticado(UserDetails datos, Long empresaId, String rol) {
+        super(datos.getUsername(), datos.getPassword(), datos.isEnabled(), datos.isAccountNonExpired(),
+                datos.isCredentialsNonExpired(), datos.isAccountNonLocked(), datos.getAuthorities());
+        this.empresaId = empresaId;
+        this.rol = rol;
+    }
+
+    public static UsuarioAutenticado de(Usuario usuario) {
+        UserDetails datos = User.builder()
+                .username(usuario.getNombreUsuario())
+                .password(usuario.getContrasenna())
+                .roles(usuario.getRol())
+                .disabled(!usuario.isActivo())
+                .accountExpired(false)
+                .credentialsExpired(false)
+                .accountLocked(false)
+                .build();
+        Long empresaId = usuario.getEmpresa() != null ? usuario.getEmpresa().getId() : null;
+        return new UsuarioAutenticado(datos, empresaId, usuario.getRol());
+    }
+
+    public Long getEmpresaId() {
+        return empresaId;
+    }
+
+    public String getRol() {
+        return rol;
+    }
+
+    public boolean isSuperAdmin() {
+        return "SUPER_ADMIN".equals(rol);
+    }
+
+    // User compara solo por username: añadir la empresa para no mezclar sesiones de tenants distintos
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && obj instanceof UsuarioAutenticado otro
+                && Objects.equals(empresaId, otro.empresaId);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
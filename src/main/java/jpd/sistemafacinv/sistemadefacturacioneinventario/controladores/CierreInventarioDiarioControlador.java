@@ -10,9 +10,11 @@ import org.springframework.web.bind.annotation.*;
 
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DetalleCierreInventarioDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.TrabajoCierre;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Usuario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.DetallesCierreDTO;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.CierreInventarioDiarioService;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.CierreTrabajoServicio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.UsuarioServicio;
 import lombok.AllArgsConstructor;
 
@@ -21,7 +23,9 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -33,6 +37,7 @@ public class CierreInventarioDiarioControlador {
 
     private final CierreInventarioDiarioService cierreService;
     private final UsuarioServicio usuarioServicio;
+    private final CierreTrabajoServicio cierreTrabajoServicio;
 
     // 1. LISTAR CIERRES
     @GetMapping
@@ -157,17 +162,8 @@ public class CierreInventarioDiarioControlador {
         log.debug("Recibidos {} detalles para guardar",
                 request.getDetalles() != null ? request.getDetalles().size() : 0);
 
-        // Guardar todos los detalles
-        if (request.getDetalles() != null) {
-            for (DetallesCierreDTO.DetalleRequest detalleReq : request.getDetalles()) {
-                cierreService.actualizarDetalle(
-                        detalleReq.getId(),
-                        detalleReq.getStockReal(),
-                        detalleReq.getMerma(),
-                        detalleReq.getDesperdicio());
-            }
-            log.debug("{} detalles actualizados", request.getDetalles().size());
-        }
+        // Guardar todos los detalles en una sola transacción
+        cierreService.actualizarDetalles(id, request.getDetalles());
 
         // Solo pasa a PRE-COMPLETADO (NO ajusta inventario)
         cierreService.completarCierre(id);
@@ -176,7 +172,7 @@ public class CierreInventarioDiarioControlador {
         return "redirect:/cierres";
     }
 
-    // 6. COMPLETAR DEFINITIVO (COMPLETADO)
+    // 6. COMPLETAR DEFINITIVO (COMPLETADO) - se procesa en segundo plano
     @PostMapping("/completar-definitivo/{id}")
     public String completarCierreDefinitivo(@PathVariable Long id,
             @ModelAttribute DetallesCierreDTO request) {
@@ -184,22 +180,35 @@ public class CierreInventarioDiarioControlador {
         log.info("✅ POST /cierres/completar-definitivo/{} - Completando cierre definitivamente", id);
 
         // Guardar merma/desperdicio (si hay)
-        if (request.getDetalles() != null) {
-            log.debug("Actualizando {} detalles antes de completar", request.getDetalles().size());
-            for (DetallesCierreDTO.DetalleRequest detalleReq : request.getDetalles()) {
-                cierreService.actualizarDetalle(
-                        detalleReq.getId(),
-                        detalleReq.getStockReal(),
-                        detalleReq.getMerma(),
-                        detalleReq.getDesperdicio());
-            }
-        }
+        cierreService.actualizarDetalles(id, request.getDetalles());
 
-        // Pasa a COMPLETADO y ajusta inventario si se marca
-        cierreService.completarCierreDefinitivo(id);
-        log.info("✅ Cierre completado definitivamente ID: {}", id);
+        // Pasa a COMPLETADO y ajusta inventario en el ejecutor de cierres
+        TrabajoCierre trabajo = cierreTrabajoServicio.encolar(id);
+        log.info("✅ Cierre ID: {} enviado a procesar. Trabajo ID: {}", id, trabajo.getId());
 
-        return "redirect:/cierres";
+        return "redirect:/cierres/procesando/" + trabajo.getId();
+    }
+
+    // 7. PANTALLA DE PROGRESO DEL CIERRE DEFINITIVO
+    @GetMapping("/procesando/{trabajoId}")
+    public String verProgresoCierre(@PathVariable Long trabajoId, Model model) {
+        TrabajoCierre trabajo = cierreTrabajoServicio.buscarTrabajo(trabajoId);
+        model.addAttribute("trabajo", trabajo);
+        return "cierres/procesando";
+    }
+
+    // Estado del trabajo (la vista lo consulta cada segundo)
+    @GetMapping("/trabajos/{trabajoId}")
+    @ResponseBody
+    public Map<String, Object> estadoTrabajo(@PathVariable Long trabajoId) {
+        TrabajoCierre trabajo = cierreTrabajoServicio.buscarTrabajo(trabajoId);
+        Map<String, Object> estado = new HashMap<>();
+        estado.put("estado", trabajo.getEstado());
+        estado.put("progreso", trabajo.getProgreso());
+        estado.put("paso", trabajo.getPaso());
+        estado.put("error", trabajo.getError());
+        estado.put("cierreId", trabajo.getCierre().getId());
+        return estado;
     }
 
     @GetMapping("/detalleCierre/{id}")
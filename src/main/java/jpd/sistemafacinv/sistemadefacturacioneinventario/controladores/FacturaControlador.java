@@ -1,5 +1,10 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.controladores;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,14 +25,18 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
+import jakarta.servlet.http.HttpServletResponse;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Cliente;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaDetalle;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.FacturaListadoDTO;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.PaginaFacturasDTO;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.ProductoPOSDTO;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.CierreInventarioDiarioRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.CierreEstadoCache;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.ClienteServicio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.ExportacionFacturasServicio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.FacturaServicio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.ProductoServicio;
 import lombok.AllArgsConstructor;
@@ -42,33 +51,78 @@ public class FacturaControlador {
     private final FacturaServicio facturaServicio;
     private final ClienteServicio clienteServicio;
     private final ProductoServicio productoServicio;
-    private final CierreInventarioDiarioRepositorio cierreRepo;
+    private final CierreEstadoCache cierreEstadoCache;
+    private final ExportacionFacturasServicio exportacionFacturasServicio;
 
     // ========== RUTAS ADMIN (Solo visualización) ==========
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN','CAJERO')")
     public String listarFacturas(
-            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(required = false) Integer pagina,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int tamanio,
             @RequestParam(required = false) String estado,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @RequestParam(defaultValue = "false") boolean contar,
             Model modelo) {
 
-        log.info("Listando facturas - Página: {}, Tamaño: {}", pagina, tamanio);
+        modelo.addAttribute("tamanio", tamanio);
+        modelo.addAttribute("estado", estado);
+        modelo.addAttribute("fechaInicio", fechaInicio);
+        modelo.addAttribute("fechaFin", fechaFin);
+
+        // Enlaces antiguos con ?pagina=N: paginación por OFFSET
+        if (pagina != null) {
+            log.info("Listando facturas - Página: {}, Tamaño: {}", pagina, tamanio);
+
+            Page<FacturaListadoDTO> paginaFacturas = facturaServicio.obtenerFacturasPaginadas(
+                    pagina, tamanio, estado, fechaInicio, fechaFin);
+
+            modelo.addAttribute("facturas", paginaFacturas.getContent());
+            modelo.addAttribute("paginaActual", pagina);
+            modelo.addAttribute("totalPaginas", paginaFacturas.getTotalPages());
+            modelo.addAttribute("totalElementos", paginaFacturas.getTotalElements());
+            return "facturas/lista";
+        }
 
-        Page<Factura> paginaFacturas = facturaServicio.obtenerFacturasPaginadas(
-                pagina, tamanio, estado, fechaInicio, fechaFin);
+        log.info("Listando facturas - Cursor: {}, Tamaño: {}", cursor, tamanio);
 
-        modelo.addAttribute("facturas", paginaFacturas.getContent());
-        modelo.addAttribute("paginaActual", pagina);
-        modelo.addAttribute("totalPaginas", paginaFacturas.getTotalPages());
-        modelo.addAttribute("totalElementos", paginaFacturas.getTotalElements());
-        modelo.addAttribute("tamanio", tamanio);
+        PaginaFacturasDTO paginaFacturas = facturaServicio.obtenerPaginaFacturas(
+                cursor, tamanio, estado, fechaInicio, fechaFin, contar);
+
+        modelo.addAttribute("facturas", paginaFacturas.getFacturas());
+        modelo.addAttribute("cursor", cursor);
+        modelo.addAttribute("siguienteCursor", paginaFacturas.getSiguienteCursor());
+        modelo.addAttribute("totalElementos", paginaFacturas.getTotal());
+        modelo.addAttribute("totalAproximado", paginaFacturas.isTotalAproximado());
 
         return "facturas/lista";
     }
 
+    // Exportación CSV del rango (por defecto, el mes actual); se escribe directo en la respuesta
+    @GetMapping("/exportar")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportarFacturas(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            HttpServletResponse response) throws IOException {
+
+        LocalDate inicio = fechaInicio != null ? fechaInicio : LocalDate.now().withDayOfMonth(1);
+        LocalDate fin = fechaFin != null ? fechaFin : LocalDate.now();
+        log.info("📤 GET /facturas/exportar - Exportando facturas desde {} hasta {}", inicio, fin);
+
+        response.setContentType("text/csv; charset=UTF-8");
+        response.setHeader("Content-Disposition",
+                "attachment; filename=\"facturas_" + inicio + "_" + fin + ".csv\"");
+
+        Writer salida = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), 16 * 1024);
+        // BOM para que Excel reconozca los acentos
+        salida.write('\uFEFF');
+        exportacionFacturasServicio.exportarCsv(inicio, fin, salida);
+    }
+
     @GetMapping("/detalle/{id}")
     @PreAuthorize("hasAnyRole('ADMIN','CAJERO')")
     public String verDetalleFactura(@PathVariable Long id, Model modelo) {
@@ -103,14 +157,14 @@ public class FacturaControlador {
         log.info("💰 GET /facturas/facturar - Mostrando punto de venta (CAJERO)");
 
         LocalDate hoy = LocalDate.now();
-        CierreInventarioDiario cierreHoy = cierreRepo.findCierreCompletadoByFecha(hoy);
-
-        if (cierreHoy != null && cierreHoy.getEstado().equals("COMPLETADO")) {
+        if (cierreEstadoCache.diaCerrado(TenantContext.getCurrentTenant(), hoy)) {
             log.warn("⛔ Día ya cerrado. No se pueden crear nuevas facturas. Fecha: {}", hoy);
             // Redirigir con mensaje de error
             return "redirect:/facturas?error=El día ya está cerrado. No se pueden crear nuevas facturas.";
         }
         List<Producto> productos = productoServicio.listarProductos();
+        // Stock posible de todos los productos con receta de una vez (caché por empresa)
+        Map<Long, Integer> stockPosibleMap = productoServicio.calcularStockPosible(productos);
 
         List<ProductoPOSDTO> productosPOS = productos.stream().map(p -> {
 
@@ -123,7 +177,7 @@ public class FacturaControlador {
             double stock;
 
             if (p.isTieneReceta()) {
-                stock = productoServicio.calcularStockPosible(p.getId());
+                stock = stockPosibleMap.getOrDefault(p.getId(), 0);
             } else {
                 stock = p.getStock();
             }
@@ -133,12 +187,13 @@ public class FacturaControlador {
 
         }).toList();
 
-        modelo.addAttribute("clientes", clienteServicio.listarClientes());
+        List<Cliente> clientes = clienteServicio.listarClientes();
+        modelo.addAttribute("clientes", clientes);
         modelo.addAttribute("productos", productosPOS);
         modelo.addAttribute("fechaHoy", LocalDate.now());
 
         log.debug("Punto de venta cargado - Clientes: {}, Productos: {}",
-                clienteServicio.listarClientes().size(), productoServicio.listarProductos().size());
+                clientes.size(), productosPOS.size());
         return "facturas/punto-venta";
     }
 
@@ -174,18 +229,19 @@ public class FacturaControlador {
         if (productoIds != null && cantidades != null) {
             for (int i = 0; i < productoIds.size(); i++) {
                 if (productoIds.get(i) != null && cantidades.get(i) > 0) {
-                    Producto producto = productoServicio.buscarProducto(productoIds.get(i));
+                    // Solo la referencia: crearFactura carga todos los productos en una consulta
+                    Producto producto = new Producto();
+                    producto.setId(productoIds.get(i));
 
                     FacturaDetalle detalle = FacturaDetalle.builder()
                             .producto(producto)
                             .cantidad(cantidades.get(i))
-                            .precioUnitario(producto.getPrecioVenta())
                             .factura(factura)
                             .build();
 
                     detalles.add(detalle);
-                    log.trace("Producto agregado a factura: {} (ID: {}), Cantidad: {}",
-                            producto.getNombre(), productoIds.get(i), cantidades.get(i));
+                    log.trace("Producto agregado a factura: ID {}, Cantidad: {}",
+                            productoIds.get(i), cantidades.get(i));
                 }
             }
         }
@@ -34,22 +34,13 @@ public class ProductoControlador {
     public String listarProductos(Model modelo) {
         log.info("📋 GET /productos - Listando productos");
 
-        List<Producto> productos = productoServicio.listarProductos();
+        List<Producto> productos = productoServicio.listarProductosConReceta();
         log.debug("Encontrados {} productos", productos.size());
 
         // Mapa: productoId -> stockPosible
-        Map<Long, Integer> stockPosibleMap = new HashMap<>();
+        Map<Long, Integer> stockPosibleMap = productoServicio.calcularStockPosible(productos);
         Map<Integer, String> ingredienteLimitanteMap = new HashMap<>();
 
-        for (Producto producto : productos) {
-            if (producto.isTieneReceta()) {
-                int stockPosible = productoServicio.calcularStockPosible(producto.getId());
-                stockPosibleMap.put(producto.getId(), stockPosible);
-                log.trace("Producto con receta: {} (ID: {}), Stock posible: {}",
-                        producto.getNombre(), producto.getId(), stockPosible);
-            }
-        }
-
         modelo.addAttribute("productos", productos);
         modelo.addAttribute("stockPosibleMap", stockPosibleMap);
         modelo.addAttribute("ingredienteLimitanteMap", ingredienteLimitanteMap);
@@ -62,7 +53,7 @@ public class ProductoControlador {
     public String mostrarFormularioNuevo(Model modelo) {
         log.info("📝 GET /productos/nuevo - Mostrando formulario nuevo producto");
         modelo.addAttribute("producto", new Producto());
-        modelo.addAttribute("recetas", recetaServicio.listaRecetas());
+        modelo.addAttribute("recetas", recetaServicio.listarRecetasParaSeleccion());
         return "productos/formulario";
     }
 
@@ -71,7 +62,7 @@ public class ProductoControlador {
         log.info("✏️ GET /productos/editar/{} - Editando producto", id);
         Producto producto = productoServicio.buscarProducto(id);
         modelo.addAttribute("producto", producto);
-        modelo.addAttribute("recetas", recetaServicio.listaRecetas());
+        modelo.addAttribute("recetas", recetaServicio.listarRecetasParaSeleccion());
 
         log.debug("Producto encontrado: '{}', Tiene receta: {}, Receta ID: {}",
                 producto.getNombre(), producto.isTieneReceta(),
@@ -150,7 +141,7 @@ public class ProductoControlador {
             producto.setTieneReceta(esConReceta);
 
             model.addAttribute("producto", producto);
-            model.addAttribute("recetas", recetaServicio.listaRecetas());
+            model.addAttribute("recetas", recetaServicio.listarRecetasParaSeleccion());
             model.addAttribute("error", e.getMessage());
 
             return "productos/formulario";
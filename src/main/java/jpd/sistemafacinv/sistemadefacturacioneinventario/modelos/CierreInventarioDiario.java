@@ -7,6 +7,7 @@ import java.util.List;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -34,13 +35,13 @@ public class CierreInventarioDiario {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "empresa_id", nullable = false)
     private Empresa empresa;
 
     private LocalDate fecha;
 
-    @ManyToOne // ← AÑADIR ESTA ANOTACIÓN
+    @ManyToOne(fetch = FetchType.LAZY) // ← AÑADIR ESTA ANOTACIÓN
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
     private String estado;
@@ -0,0 +1,21 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila del listado de facturas: solo las columnas de la tabla, sin entidad ni asociaciones
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FacturaListadoDTO {
+    private int id;
+    private String numeroFactura;
+    private LocalDate fecha;
+    // null = consumidor final
+    private String cliente;
+    private String estado;
+    private double total;
+}
@@ -0,0 +1,20 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Página del listado de facturas por cursor (fecha:id de la última fila)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaginaFacturasDTO {
+    private List<FacturaListadoDTO> facturas;
+    // null si no hay más páginas
+    private String siguienteCursor;
+    // null si no se pidió el total
+    private Long total;
+    private boolean totalAproximado;
+}
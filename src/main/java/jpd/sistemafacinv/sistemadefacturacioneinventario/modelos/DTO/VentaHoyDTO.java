@@ -0,0 +1,21 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO;
+
+import java.time.LocalTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila del listado de ventas de hoy: solo lo que muestra la vista, sin cargar la factura completa
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VentaHoyDTO {
+    private int id;
+    private String numeroFactura;
+    private LocalTime hora;
+    private String cliente;
+    private String formaPago;
+    private String estado;
+    private double total;
+}
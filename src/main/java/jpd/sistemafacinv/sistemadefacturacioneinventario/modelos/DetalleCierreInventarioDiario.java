@@ -1,6 +1,7 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -28,17 +29,17 @@ public class DetalleCierreInventarioDiario {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cierre_id", nullable = false)
     private CierreInventarioDiario cierre;
 
     // PRODUCTOS SIN RECETA (Coca Cola, etc.)
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "producto_id", nullable = true)
     private Producto producto; // Si es producto, debe ser tieneReceta = false
 
     // INGREDIENTES (materia prima)
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ingrediente_id", nullable = true)
     private Ingrediente ingrediente;
 
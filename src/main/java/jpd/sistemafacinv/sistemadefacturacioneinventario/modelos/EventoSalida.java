@@ -0,0 +1,68 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Bandeja de salida: efectos secundarios de una venta o anulación, guardados en la
+// misma transacción que la factura y procesados después en segundo plano
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(indexes = {
+        @Index(columnList = "estado, proximo_intento"),
+        @Index(columnList = "empresa_id, estado, id")
+})
+public class EventoSalida {
+
+    public static final String VENTA = "VENTA";
+    public static final String ANULACION = "ANULACION";
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String PROCESADO = "PROCESADO";
+    // El cierre definitivo recalculó el día desde las facturas: ya no hay nada que sumar
+    public static final String OMITIDO = "OMITIDO";
+    public static final String FALLIDO = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "empresa_id", nullable = false)
+    private Empresa empresa;
+
+    private String tipo; // VENTA, ANULACION
+
+    private Long facturaId;
+
+    // Fecha de la factura: día del resumen afectado
+    private LocalDate fecha;
+
+    private String estado;
+
+    private int intentos;
+
+    // No se procesa antes de esta hora (espera entre reintentos)
+    private LocalDateTime proximoIntento;
+
+    private String error;
+
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaProceso;
+}
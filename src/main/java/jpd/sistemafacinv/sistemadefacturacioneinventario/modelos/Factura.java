@@ -2,20 +2,24 @@ package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -29,24 +33,33 @@ import lombok.NoArgsConstructor;
 @Builder
 @Table(uniqueConstraints = {
         @UniqueConstraint(columnNames = { "empresa_id", "numeroFactura" })
+}, indexes = {
+        // Reportes y cierres filtran siempre por empresa y rango de fechas; ventas de hoy también por estado
+        @Index(columnList = "empresa_id, fecha, estado")
 })
 public class Factura {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "factura_ids")
+    @TableGenerator(name = "factura_ids", table = GeneradorIds.TABLA, pkColumnName = GeneradorIds.COLUMNA_ENTIDAD,
+            valueColumnName = GeneradorIds.COLUMNA_VALOR, pkColumnValue = "factura",
+            allocationSize = GeneradorIds.ASIGNACION)
     private int id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "empresa_id", nullable = false)
     private Empresa empresa;
 
     private String numeroFactura;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cliente_id", nullable = true)
     private Cliente cliente;
 
     private LocalDate fecha;
 
+    // Hora de emisión (la fecha se guarda sin hora)
+    private LocalTime hora;
+
     @OneToMany(mappedBy = "factura", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<FacturaDetalle> facturaDetalle;
 
@@ -59,6 +72,7 @@ public class Factura {
 
     public Factura() {
         this.fecha = LocalDate.now();
+        this.hora = LocalTime.now();
         this.estado = "PENDIENTE";
         this.facturaDetalle = new ArrayList<>();
     }
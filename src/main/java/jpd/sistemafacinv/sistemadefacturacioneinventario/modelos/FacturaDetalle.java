@@ -1,11 +1,9 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -14,8 +12,8 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.UniqueConstraint;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.UsuarioServicio;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -28,18 +26,19 @@ import lombok.NoArgsConstructor;
 @Builder
 public class FacturaDetalle {
 
-    private static final Logger log = LoggerFactory.getLogger(UsuarioServicio.class);
-
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "factura_detalle_ids")
+    @TableGenerator(name = "factura_detalle_ids", table = GeneradorIds.TABLA, pkColumnName = GeneradorIds.COLUMNA_ENTIDAD,
+            valueColumnName = GeneradorIds.COLUMNA_VALOR, pkColumnValue = "factura_detalle",
+            allocationSize = GeneradorIds.ASIGNACION)
     private long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "factura_id", nullable = false)
     @JsonIgnore
     private Factura factura;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "producto_id", nullable = false)
     private Producto producto;
 
@@ -49,24 +48,12 @@ public class FacturaDetalle {
 
     private double subtotal;
 
-    // Calcular automáticamente antes de persistir
+    // Calcular automáticamente antes de persistir (se ejecuta por cada línea: sin logs ni trazas)
     @PrePersist
     @PreUpdate
     private void calcularSubtotal() {
-        // AÑADE ESTO:
-        String metodo = "";
-        try {
-            metodo = new Throwable().getStackTrace()[1].getMethodName();
-        } catch (Exception e) {
-        }
-
-        log.warn("🚨 EJECUTANDO calcularSubtotal() - Desde: {}, FacturaDetalle ID: {}",
-                metodo, this.id);
-
         if (this.precioUnitario > 0 && this.cantidad > 0) {
             this.subtotal = this.cantidad * this.precioUnitario;
-            log.warn("Subtotal calculado: {} x {} = {}",
-                    this.cantidad, this.precioUnitario, this.subtotal);
         }
     }
 }
\ No newline at end of file
@@ -1,12 +1,14 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -24,14 +26,17 @@ import lombok.NoArgsConstructor;
 public class FacturaDetalleProveedor {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "factura_detalle_proveedor_ids")
+    @TableGenerator(name = "factura_detalle_proveedor_ids", table = GeneradorIds.TABLA, pkColumnName = GeneradorIds.COLUMNA_ENTIDAD,
+            valueColumnName = GeneradorIds.COLUMNA_VALOR, pkColumnValue = "factura_detalle_proveedor",
+            allocationSize = GeneradorIds.ASIGNACION)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "factura_proveedor_id", nullable = false)
     private FacturaProveedor facturaProveedor;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ingrediente_id", nullable = false)
     private Ingrediente ingrediente;
 
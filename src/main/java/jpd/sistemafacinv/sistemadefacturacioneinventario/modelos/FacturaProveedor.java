@@ -8,9 +8,11 @@ import java.util.List;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -27,6 +29,9 @@ import lombok.NoArgsConstructor;
 @Builder
 @Table(uniqueConstraints = {
         @UniqueConstraint(columnNames = { "empresa_id", "numeroFactura" })
+}, indexes = {
+        // Reportes y cierres filtran siempre por empresa y rango de fechas
+        @Index(columnList = "empresa_id, fecha")
 })
 public class FacturaProveedor {
 
@@ -34,14 +39,14 @@ public class FacturaProveedor {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "empresa_id", nullable = false)
     private Empresa empresa;
 
     private String numeroFactura;
     private LocalDate fecha;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "proveedor_id", nullable = false)
     private Proveedor proveedor;
 
@@ -0,0 +1,20 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
+
+/**
+ * Tabla de identificadores compartida por las entidades de mucho volumen.
+ * Con IDENTITY Hibernate tiene que insertar cada fila en el momento para
+ * conocer su ID, y eso anula el batching de JDBC. Con la tabla, cada hilo
+ * reserva un bloque de {@link #ASIGNACION} IDs en una sola ida a la base
+ * (optimizador pooled) y las inserciones viajan en lotes.
+ * Cada entidad usa su propia fila, identificada por el nombre de su tabla.
+ */
+public final class GeneradorIds {
+
+    public static final String TABLA = "generador_ids";
+    public static final String COLUMNA_ENTIDAD = "entidad";
+    public static final String COLUMNA_VALOR = "siguiente";
+    public static final int ASIGNACION = 50;
+
+    private GeneradorIds() {
+    }
+}
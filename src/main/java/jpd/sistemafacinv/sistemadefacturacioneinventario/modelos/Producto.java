@@ -1,9 +1,12 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -18,6 +21,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@DynamicUpdate // solo columnas modificadas: no pisa el stock descontado por otras ventas
+// Sin caché de segundo nivel: el stock cambia en cada venta sin receta, anulación y cierre, y cada
+// UPDATE masivo vaciaría la región de todas las empresas (y en otros nodos se vería un stock viejo)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -32,7 +38,7 @@ public class Producto {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "empresa_id", nullable = false)
     private Empresa empresa;
 
@@ -40,7 +46,7 @@ public class Producto {
 
     private boolean tieneReceta;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receta_id")
     @JsonIgnore
     private Receta receta;
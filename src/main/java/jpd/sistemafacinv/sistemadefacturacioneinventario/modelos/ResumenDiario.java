@@ -0,0 +1,58 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Totales pre-agregados por empresa, día e ingrediente/producto (tipo + itemId)
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "empresa_id", "fecha", "tipo", "item_id" })
+})
+public class ResumenDiario {
+
+    public static final String INGREDIENTE = "INGREDIENTE";
+    public static final String PRODUCTO = "PRODUCTO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "empresa_id", nullable = false)
+    private Empresa empresa;
+
+    private LocalDate fecha;
+
+    private String tipo; // INGREDIENTE, PRODUCTO
+
+    private Long itemId;
+
+    // PRODUCTO: unidades vendidas e ingresos (facturas PAGADAS)
+    private double cantidadVendida;
+    private double ingresos;
+
+    // INGREDIENTE: consumo por recetas vendidas y compras a proveedores
+    private double cantidadConsumida;
+    private double cantidadComprada;
+    private double costoCompras;
+
+    // true cuando el cierre definitivo del día recalculó y confirmó los totales (desde entonces no cambian)
+    private boolean sellado;
+}
@@ -0,0 +1,64 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.modelos;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Ejecución en segundo plano del cierre definitivo (estado y progreso consultables por la vista)
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(indexes = {
+        @Index(columnList = "estado"),
+        @Index(columnList = "cierre_id, estado")
+})
+public class TrabajoCierre {
+
+    public static final String EN_COLA = "EN_COLA";
+    public static final String EJECUTANDO = "EJECUTANDO";
+    public static final String TERMINADO = "TERMINADO";
+    public static final String FALLIDO = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "empresa_id", nullable = false)
+    private Empresa empresa;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cierre_id", nullable = false)
+    private CierreInventarioDiario cierre;
+
+    private String estado;
+
+    // 0 - 100
+    private int progreso;
+
+    // Paso actual, para mostrar en pantalla
+    private String paso;
+
+    private String error;
+
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+
+    // Latido del nodo que lo ejecuta: mientras se renueve, ningún otro nodo lo vuelve a la cola
+    private LocalDateTime ultimoLatido;
+}
@@ -5,11 +5,14 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DetalleCierreInventarioDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
@@ -38,10 +41,20 @@ public interface CierreInventarioDiarioRepositorio extends JpaRepository<CierreI
 
         Optional<CierreInventarioDiario> findByFechaAndEmpresaId(LocalDate hoy, Long empresaId);
 
+        // Cierre definitivo: bloquea la fila para que dos ejecuciones no procesen el mismo cierre
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT c FROM CierreInventarioDiario c WHERE c.id = :id AND c.empresa.id = :empresaId")
+        Optional<CierreInventarioDiario> bloquearPorIdYEmpresaId(@Param("id") Long id,
+                        @Param("empresaId") Long empresaId);
+
+        // Las vistas de cierre muestran quién lo hizo: el usuario viene en el mismo SELECT
+        @EntityGraph(attributePaths = "usuario")
         Optional<CierreInventarioDiario> findByIdAndEmpresaId(Long cierreId, Long empresaId);
 
+        @EntityGraph(attributePaths = "usuario")
         List<CierreInventarioDiario> findByEmpresaId(long empresaId);
 
+        @EntityGraph(attributePaths = "usuario")
         Optional<CierreInventarioDiario> findByEstadoAndEmpresaId(String estado, Long empresaId);
 
         boolean existsByFechaAndEmpresaId(LocalDate hoy, Long id);
@@ -3,17 +3,23 @@ package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.AvailableHints;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Cliente;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
 
 @Repository
 public interface ClienteRepositorio extends JpaRepository<Cliente, Integer> {
 
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Cliente> findByEmpresaId(Long empresaId);
 
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Cliente> findByIdAndEmpresaId(Long id, Long empresaId);
 
     // Búsqueda por nombre con empresa
@@ -23,6 +29,7 @@ public interface ClienteRepositorio extends JpaRepository<Cliente, Integer> {
     Optional<Cliente> findByIdentificacionAndEmpresaId(String identificacion, Long empresaId);
 
     // Clientes activos por empresa
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Cliente> findByActivoTrueAndEmpresaId(Long empresaId);
 
     // Contar clientes por empresa
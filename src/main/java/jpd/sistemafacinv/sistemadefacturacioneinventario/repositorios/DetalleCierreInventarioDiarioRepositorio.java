@@ -4,47 +4,90 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.AvailableHints;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DetalleCierreInventarioDiario;
 
 @Repository
 public interface DetalleCierreInventarioDiarioRepositorio extends JpaRepository<DetalleCierreInventarioDiario, Long> {
 
-        // Buscar detalles de un cierre específico
+        // Buscar detalles de un cierre específico (la planilla muestra el nombre del ingrediente/producto)
+        @EntityGraph(attributePaths = { "ingrediente", "producto" })
         List<DetalleCierreInventarioDiario> findByCierre(CierreInventarioDiario cierre);
 
         // Método EXISTENTE (para stock inicial) - BUSCA < fecha
         @Query("SELECT d.ingrediente.id as ingredienteId, d.stockReal as stockReal " +
                         "FROM DetalleCierreInventarioDiario d " +
-                        "WHERE d.cierre.estado = 'COMPLETADO' " +
+                        "WHERE d.cierre.empresa.id = :empresaId " +
+                        "AND d.cierre.estado = 'COMPLETADO' " +
                         "AND d.cierre.fecha = (" +
                         "    SELECT MAX(c.fecha) FROM CierreInventarioDiario c " +
-                        "    WHERE c.estado = 'COMPLETADO' " +
+                        "    WHERE c.empresa.id = :empresaId " +
+                        "    AND c.estado = 'COMPLETADO' " +
                         "    AND c.fecha < :fecha" + // ← MENOR QUE (<)
                         ") " +
                         "AND d.ingrediente IS NOT NULL")
         List<StockInicialProjection> findStockInicialDeCierreAnterior(
+                        @Param("empresaId") Long empresaId,
                         @Param("fecha") LocalDate fecha);
 
         // Método NUEVO (para stock final) - BUSCA <= fecha
         @Query("SELECT d.ingrediente.id as ingredienteId, d.stockReal as stockReal " +
                         "FROM DetalleCierreInventarioDiario d " +
-                        "WHERE d.cierre.estado = 'COMPLETADO' " +
+                        "WHERE d.cierre.empresa.id = :empresaId " +
+                        "AND d.cierre.estado = 'COMPLETADO' " +
                         "AND d.cierre.fecha = (" +
                         "    SELECT MAX(c.fecha) FROM CierreInventarioDiario c " +
-                        "    WHERE c.estado = 'COMPLETADO' " +
+                        "    WHERE c.empresa.id = :empresaId " +
+                        "    AND c.estado = 'COMPLETADO' " +
                         "    AND c.fecha <= :fecha" + // ← MENOR O IGUAL (<=)
                         ") " +
                         "AND d.ingrediente IS NOT NULL")
         List<StockInicialProjection> findStockRealFinalHastaFecha(
+                        @Param("empresaId") Long empresaId,
                         @Param("fecha") LocalDate fecha);
 
-        // En DetalleCierreRepository
+        // Foto del stock al iniciar el cierre: copia ingredientes y productos sin receta con INSERT ... SELECT
+        @Modifying
+        @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "detalle_cierre_inventario_diario"))
+        @Query(value = "INSERT INTO detalle_cierre_inventario_diario " +
+                        "(cierre_id, ingrediente_id, stock_teorico, costo_unitario, stock_real, stock_merma, " +
+                        "stock_desperdicio, diferencia, valor_diferencia) " +
+                        "SELECT :cierreId, i.id, i.stock_actual, i.precio, 0, 0, 0, 0, 0 " +
+                        "FROM ingrediente i WHERE i.empresa_id = :empresaId", nativeQuery = true)
+        int precargarIngredientes(@Param("cierreId") Long cierreId, @Param("empresaId") Long empresaId);
+
+        @Modifying
+        @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "detalle_cierre_inventario_diario"))
+        @Query(value = "INSERT INTO detalle_cierre_inventario_diario " +
+                        "(cierre_id, producto_id, stock_teorico, costo_unitario, stock_real, stock_merma, " +
+                        "stock_desperdicio, diferencia, valor_diferencia) " +
+                        "SELECT :cierreId, p.id, COALESCE(p.stock, 0), COALESCE(p.precio_venta, 0), 0, 0, 0, 0, 0 " +
+                        "FROM producto p WHERE p.empresa_id = :empresaId AND p.tiene_receta = false",
+                        nativeQuery = true)
+        int precargarProductosSinReceta(@Param("cierreId") Long cierreId, @Param("empresaId") Long empresaId);
+
+        // Detalles del cierre con su ingrediente/producto en una sola consulta (guardado masivo del conteo)
+        @Query("SELECT d FROM DetalleCierreInventarioDiario d " +
+                        "LEFT JOIN FETCH d.ingrediente " +
+                        "LEFT JOIN FETCH d.producto " +
+                        "WHERE d.cierre.id = :cierreId AND d.cierre.empresa.id = :empresaId")
+        List<DetalleCierreInventarioDiario> findByCierreIdAndEmpresaIdConItems(
+                        @Param("cierreId") Long cierreId,
+                        @Param("empresaId") Long empresaId);
+
+        // En DetalleCierreRepository (el conteo individual usa el precio del ingrediente/producto)
+        @EntityGraph(attributePaths = { "ingrediente", "producto" })
         Optional<DetalleCierreInventarioDiario> findByIdAndCierreEmpresaId(
                         Long detalleId, Long empresaId);
 
@@ -2,12 +2,17 @@ package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
 
 import java.util.Optional;
 
+import org.hibernate.jpa.AvailableHints;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import jakarta.persistence.QueryHint;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
 
 public interface EmpresaRepositorio extends JpaRepository<Empresa, Long> {
 
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Empresa> findBySubdominio(String subdominio);
 
     boolean existsBySubdominio(String subdominio);
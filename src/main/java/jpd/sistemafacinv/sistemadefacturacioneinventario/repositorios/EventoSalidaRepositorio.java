@@ -0,0 +1,60 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.EventoSalida;
+
+@Repository
+public interface EventoSalidaRepositorio extends JpaRepository<EventoSalida, Long> {
+
+        // Siguientes eventos de la empresa en orden de llegada
+        List<EventoSalida> findByEmpresaIdAndEstadoOrderByIdAsc(Long empresaId, String estado, Pageable pageable);
+
+        long countByEmpresaIdAndEstado(Long empresaId, String estado);
+
+        // Empresas con eventos pendientes ya vencidos (reintentos, señales perdidas, reinicios)
+        @Query("SELECT DISTINCT e.empresa.id FROM EventoSalida e " +
+                        "WHERE e.estado = 'PENDIENTE' AND e.proximoIntento <= :ahora")
+        List<Long> findEmpresasConPendientes(@Param("ahora") LocalDateTime ahora);
+
+        // Tomar el evento: solo un hilo/nodo pasa de PENDIENTE a PROCESADO (en la transacción del efecto)
+        @Modifying
+        @Query("UPDATE EventoSalida e SET e.estado = 'PROCESADO', e.intentos = e.intentos + 1, " +
+                        "e.error = NULL, e.fechaProceso = :ahora WHERE e.id = :id AND e.estado = 'PENDIENTE'")
+        int tomar(@Param("id") Long id, @Param("ahora") LocalDateTime ahora);
+
+        // Fallo: PENDIENTE con nueva hora de reintento, o FALLIDO al agotar los intentos
+        @Modifying
+        @Query("UPDATE EventoSalida e SET e.estado = :estado, e.intentos = e.intentos + 1, e.error = :error, " +
+                        "e.proximoIntento = :proximoIntento, e.fechaProceso = :ahora " +
+                        "WHERE e.id = :id AND e.estado = 'PENDIENTE'")
+        int registrarFallo(@Param("id") Long id,
+                        @Param("estado") String estado,
+                        @Param("error") String error,
+                        @Param("proximoIntento") LocalDateTime proximoIntento,
+                        @Param("ahora") LocalDateTime ahora);
+
+        // Reconstrucción del resumen: los pendientes del rango ya quedan contados desde las facturas
+        @Modifying
+        @Query("UPDATE EventoSalida e SET e.estado = 'OMITIDO', e.fechaProceso = :ahora " +
+                        "WHERE e.empresa.id = :empresaId AND e.estado = 'PENDIENTE' " +
+                        "AND e.fecha BETWEEN :inicio AND :fin")
+        int omitirRango(@Param("empresaId") Long empresaId,
+                        @Param("inicio") LocalDate inicio,
+                        @Param("fin") LocalDate fin,
+                        @Param("ahora") LocalDateTime ahora);
+
+        @Modifying
+        @Query("DELETE FROM EventoSalida e WHERE e.estado IN :estados AND e.fechaProceso < :limite")
+        int purgar(@Param("estados") Collection<String> estados, @Param("limite") LocalDateTime limite);
+}
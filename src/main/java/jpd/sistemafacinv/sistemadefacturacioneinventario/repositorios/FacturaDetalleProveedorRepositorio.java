@@ -2,6 +2,7 @@ package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -11,12 +12,17 @@ import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaProveedo
 
 public interface FacturaDetalleProveedorRepositorio extends JpaRepository<FacturaProveedor, Long> {
 
-        @Query("SELECT COALESCE(SUM(fpd.cantidad), 0) " +
+        // Compras vigentes (no anuladas) agrupadas por día e ingrediente
+        @Query("SELECT fp.fecha as fecha, fpd.ingrediente.id as id, " +
+                        "SUM(fpd.cantidad) as cantidad, SUM(fpd.subtotal) as importe " +
                         "FROM FacturaDetalleProveedor fpd " +
-                        "WHERE fpd.ingrediente.id = :ingredienteId " +
-                        "AND fpd.facturaProveedor.fecha BETWEEN :inicio AND :fin")
-        Double findComprasByIngredienteAndFecha(
-                        @Param("ingredienteId") Long ingredienteId,
+                        "JOIN fpd.facturaProveedor fp " +
+                        "WHERE fp.empresa.id = :empresaId " +
+                        "AND fp.fecha BETWEEN :inicio AND :fin " +
+                        "AND fp.estado <> 'ANULADA' " +
+                        "GROUP BY fp.fecha, fpd.ingrediente.id")
+        List<TotalDiarioProjection> findComprasDiariasPorIngrediente(
+                        @Param("empresaId") Long empresaId,
                         @Param("inicio") LocalDate inicio,
                         @Param("fin") LocalDate fin);
 
@@ -2,39 +2,72 @@ package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.AvailableHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaDetalle;
 
 @Repository
 public interface FacturaDetalleRepositorio
                 extends JpaRepository<FacturaDetalle, Long> {
 
-        @Query("SELECT COALESCE(SUM(rd.cantidadIngrediente * fd.cantidad), 0) " +
+        // Consumo de ingredientes por ventas, agrupado por día e ingrediente
+        @Query("SELECT f.fecha as fecha, rd.ingrediente.id as id, " +
+                        "SUM(rd.cantidadIngrediente * fd.cantidad) as cantidad, 0.0 as importe " +
                         "FROM FacturaDetalle fd " +
+                        "JOIN fd.factura f " +
                         "JOIN fd.producto p " +
                         "JOIN p.receta.ingredientes rd " +
-                        "WHERE rd.ingrediente.id = :ingredienteId " +
-                        "AND fd.factura.fecha BETWEEN :inicio AND :fin " +
-                        "AND fd.factura.estado = 'PAGADA'")
-        Double findConsumoByIngredienteAndFecha(
-                        @Param("ingredienteId") Long ingredienteId,
+                        "WHERE f.empresa.id = :empresaId " +
+                        "AND f.fecha BETWEEN :inicio AND :fin " +
+                        "AND f.estado = 'PAGADA' " +
+                        "GROUP BY f.fecha, rd.ingrediente.id")
+        List<TotalDiarioProjection> findConsumoDiarioPorIngrediente(
+                        @Param("empresaId") Long empresaId,
+                        @Param("inicio") LocalDate inicio,
+                        @Param("fin") LocalDate fin);
+
+        // Unidades vendidas e ingresos, agrupados por día y producto
+        @Query("SELECT f.fecha as fecha, fd.producto.id as id, " +
+                        "SUM(CAST(fd.cantidad AS double)) as cantidad, SUM(fd.subtotal) as importe " +
+                        "FROM FacturaDetalle fd " +
+                        "JOIN fd.factura f " +
+                        "WHERE f.empresa.id = :empresaId " +
+                        "AND f.fecha BETWEEN :inicio AND :fin " +
+                        "AND f.estado = 'PAGADA' " +
+                        "GROUP BY f.fecha, fd.producto.id")
+        List<TotalDiarioProjection> findVentasDiariasPorProducto(
+                        @Param("empresaId") Long empresaId,
                         @Param("inicio") LocalDate inicio,
                         @Param("fin") LocalDate fin);
 
-        // MÉTODO NUEVO para productos SIN receta
-        @Query("SELECT COALESCE(SUM(fd.cantidad), 0) " +
+        // Exportación: se recorre con cursor (fetch size) y sin contexto de persistencia, en memoria constante
+        @QueryHints({
+                        @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+                        @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+        })
+        @Query("SELECT f.numeroFactura as numeroFactura, f.fecha as fecha, f.hora as hora, c.nombre as cliente, " +
+                        "f.estado as estado, f.formaPago as formaPago, p.nombre as producto, " +
+                        "fd.cantidad as cantidad, fd.precioUnitario as precioUnitario, fd.subtotal as subtotal, " +
+                        "f.total as totalFactura " +
                         "FROM FacturaDetalle fd " +
-                        "WHERE fd.producto.id = :productoId " +
-                        "AND fd.producto.tieneReceta = false " + // Solo productos sin receta
-                        "AND fd.factura.fecha BETWEEN :inicio AND :fin " +
-                        "AND fd.factura.estado = 'PAGADA'")
-        Double findVentasProductoSinRecetaByFecha(
-                        @Param("productoId") Long productoId,
+                        "JOIN fd.factura f " +
+                        "JOIN fd.producto p " +
+                        "LEFT JOIN f.cliente c " +
+                        "WHERE f.empresa.id = :empresaId " +
+                        "AND f.fecha BETWEEN :inicio AND :fin " +
+                        "ORDER BY f.fecha, f.id, fd.id")
+        Stream<FacturaExportacionProjection> streamExportacion(
+                        @Param("empresaId") Long empresaId,
                         @Param("inicio") LocalDate inicio,
                         @Param("fin") LocalDate fin);
-}
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Una fila por línea de factura para la exportación (sin cargar entidades)
+public interface FacturaExportacionProjection {
+    String getNumeroFactura();
+
+    LocalDate getFecha();
+
+    LocalTime getHora();
+
+    String getCliente();
+
+    String getEstado();
+
+    String getFormaPago();
+
+    String getProducto();
+
+    Integer getCantidad();
+
+    Double getPrecioUnitario();
+
+    Double getSubtotal();
+
+    Double getTotalFactura();
+}
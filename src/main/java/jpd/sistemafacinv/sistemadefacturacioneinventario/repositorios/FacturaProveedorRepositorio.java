@@ -4,6 +4,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,6 +20,7 @@ public interface FacturaProveedorRepositorio extends JpaRepository<FacturaProvee
         FacturaProveedor findByNumeroFactura(String numeroFactura);
 
         // Listar todas las facturas de una empresa, ordenadas por fecha descendente
+        @EntityGraph(attributePaths = "proveedor")
         List<FacturaProveedor> findByEmpresaIdOrderByFechaDesc(Long empresaId);
 
         // Buscar factura por ID y empresa
@@ -53,8 +55,15 @@ public interface FacturaProveedorRepositorio extends JpaRepository<FacturaProvee
 
         Long countByEmpresaId(Long empresaId);
 
+        // Detalle de la compra: proveedor, líneas e ingrediente de cada línea en una sola consulta
         @Query("SELECT fp FROM FacturaProveedor fp " +
-                        "LEFT JOIN FETCH fp.detalles " +
+                        "JOIN FETCH fp.proveedor " +
+                        "LEFT JOIN FETCH fp.detalles d " +
+                        "LEFT JOIN FETCH d.ingrediente " +
                         "WHERE fp.id = :id AND fp.empresa.id = :empresaId")
         Optional<FacturaProveedor> findByIdWithDetalles(@Param("id") Long id, @Param("empresaId") Long empresaId);
+
+        // Fecha del primer documento de la empresa (reconstrucción de resúmenes diarios)
+        @Query("SELECT MIN(f.fecha) FROM FacturaProveedor f WHERE f.empresa.id = :empresaId")
+        LocalDate findPrimeraFechaByEmpresaId(@Param("empresaId") Long empresaId);
 }
@@ -12,16 +12,18 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.FacturaListadoDTO;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.VentaHoyDTO;
 
 @Repository
-public interface FacturaRepositorio extends JpaRepository<Factura, Integer> {
+public interface FacturaRepositorio extends JpaRepository<Factura, Integer>, FacturaRepositorioPersonalizado {
 
-        // Ventas del día actual
-        @Query("SELECT f FROM Factura f WHERE DATE(f.fecha) = CURRENT_DATE AND f.estado = 'PAGADA'")
+        // Ventas del día actual (fecha es DATE: se compara directo para poder usar el índice)
+        @Query("SELECT f FROM Factura f WHERE f.fecha = CURRENT_DATE AND f.estado = 'PAGADA'")
         List<Factura> findFacturasHoy();
 
         // Obtener total vendido hoy
-        @Query("SELECT COALESCE(SUM(f.total), 0) FROM Factura f WHERE DATE(f.fecha) = CURRENT_DATE AND f.estado = 'PAGADA'")
+        @Query("SELECT COALESCE(SUM(f.total), 0) FROM Factura f WHERE f.fecha = CURRENT_DATE AND f.estado = 'PAGADA'")
         Double getTotalVentasHoy();
 
         List<Factura> findByFechaAndEstado(LocalDate fecha, String estado);// esta hay q cambiarla en el metodo
@@ -33,24 +35,46 @@ public interface FacturaRepositorio extends JpaRepository<Factura, Integer> {
 
         // Métodos existentes modificados:
         // Ventas del día actual POR EMPRESA
-        @Query("SELECT f FROM Factura f WHERE f.empresa.id = :empresaId AND DATE(f.fecha) = CURRENT_DATE AND f.estado = 'PAGADA'")
+        @Query("SELECT f FROM Factura f WHERE f.empresa.id = :empresaId AND f.fecha = CURRENT_DATE AND f.estado = 'PAGADA'")
         List<Factura> findFacturasHoy(@Param("empresaId") Long empresaId);
 
         // Total vendido hoy POR EMPRESA
-        @Query("SELECT COALESCE(SUM(f.total), 0) FROM Factura f WHERE f.empresa.id = :empresaId AND DATE(f.fecha) = CURRENT_DATE AND f.estado = 'PAGADA'")
+        @Query("SELECT COALESCE(SUM(f.total), 0) FROM Factura f WHERE f.empresa.id = :empresaId AND f.fecha = CURRENT_DATE AND f.estado = 'PAGADA'")
         Double getTotalVentasHoy(@Param("empresaId") Long empresaId);
 
+        // Listado liviano de ventas de un día (índice empresa_id, fecha, estado)
+        @Query("SELECT new jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.VentaHoyDTO(" +
+                        "f.id, f.numeroFactura, f.hora, c.nombre, f.formaPago, f.estado, f.total) " +
+                        "FROM Factura f LEFT JOIN f.cliente c " +
+                        "WHERE f.empresa.id = :empresaId AND f.fecha = :fecha AND f.estado = :estado " +
+                        "ORDER BY f.id DESC")
+        List<VentaHoyDTO> findVentasDelDia(
+                        @Param("empresaId") Long empresaId,
+                        @Param("fecha") LocalDate fecha,
+                        @Param("estado") String estado);
+
         // Buscar por fecha y estado POR EMPRESA
         List<Factura> findByFechaAndEstadoAndEmpresaId(LocalDate fecha, String estado, Long empresaId);
 
+        // Total y cantidad del día sin cargar las facturas (cierre diario)
+        @Query("SELECT COALESCE(SUM(f.total), 0) AS total, COUNT(f) AS cantidad FROM Factura f " +
+                        "WHERE f.empresa.id = :empresaId AND f.fecha = :fecha AND f.estado = :estado")
+        TotalVentasProjection sumarVentasDelDia(
+                        @Param("fecha") LocalDate fecha,
+                        @Param("estado") String estado,
+                        @Param("empresaId") Long empresaId);
+
         // Contar facturas POR EMPRESA (para número de factura)
         Long countByEmpresaId(Long empresaId);
 
         @Query("SELECT DISTINCT f FROM Factura f LEFT JOIN FETCH f.facturaDetalle WHERE f.empresa.id = :empresaId")
         List<Factura> findByEmpresaIdWithDetalle(@Param("empresaId") Long empresaId);
 
+        // Vista de detalle / impresión: cliente, líneas y producto de cada línea en una sola consulta
         @Query("SELECT f FROM Factura f " +
-                        "LEFT JOIN FETCH f.facturaDetalle " +
+                        "LEFT JOIN FETCH f.cliente " +
+                        "LEFT JOIN FETCH f.facturaDetalle d " +
+                        "LEFT JOIN FETCH d.producto " +
                         "WHERE f.id = :id AND f.empresa.id = :empresaId")
         Optional<Factura> findByIdWithDetalle(
                         @Param("id") Long id,
@@ -62,19 +86,30 @@ public interface FacturaRepositorio extends JpaRepository<Factura, Integer> {
                         @Param("empresaId") Long empresaId,
                         Pageable pageable);
 
-        // Con filtros adicionales
-        @Query("""
-                            SELECT f FROM Factura f
+        // Con filtros adicionales (listado por OFFSET: filas livianas, el cliente sale del JOIN)
+        @Query(value = """
+                            SELECT new jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.FacturaListadoDTO(
+                                f.id, f.numeroFactura, f.fecha, c.nombre, f.estado, f.total)
+                            FROM Factura f LEFT JOIN f.cliente c
+                            WHERE f.empresa.id = :empresaId
+                            AND (:estado IS NULL OR f.estado = :estado)
+                            AND (:fechaInicio IS NULL OR f.fecha >= :fechaInicio)
+                            AND (:fechaFin IS NULL OR f.fecha <= :fechaFin)
+                        """, countQuery = """
+                            SELECT COUNT(f) FROM Factura f
                             WHERE f.empresa.id = :empresaId
                             AND (:estado IS NULL OR f.estado = :estado)
                             AND (:fechaInicio IS NULL OR f.fecha >= :fechaInicio)
                             AND (:fechaFin IS NULL OR f.fecha <= :fechaFin)
-                            ORDER BY f.fecha DESC
                         """)
-        Page<Factura> buscarConFiltros(
+        Page<FacturaListadoDTO> buscarConFiltros(
                         @Param("empresaId") Long empresaId,
                         @Param("estado") String estado,
                         @Param("fechaInicio") LocalDate fechaInicio,
                         @Param("fechaFin") LocalDate fechaFin,
                         Pageable pageable);
+
+        // Fecha del primer documento de la empresa (reconstrucción de resúmenes diarios)
+        @Query("SELECT MIN(f.fecha) FROM Factura f WHERE f.empresa.id = :empresaId")
+        LocalDate findPrimeraFechaByEmpresaId(@Param("empresaId") Long empresaId);
 }
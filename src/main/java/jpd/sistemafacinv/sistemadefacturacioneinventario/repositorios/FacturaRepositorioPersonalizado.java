@@ -0,0 +1,21 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.FacturaListadoDTO;
+
+// Consultas de facturas que arman el SQL según los filtros recibidos
+public interface FacturaRepositorioPersonalizado {
+
+    /**
+     * Página por posición (keyset) ordenada por fecha e id descendentes.
+     * Devuelve las facturas posteriores a ({@code cursorFecha}, {@code cursorId})
+     * en ese orden; sin cursor, la primera página. Los filtros null no se agregan.
+     * Devuelve filas livianas: el nombre del cliente sale del mismo JOIN.
+     */
+    List<FacturaListadoDTO> buscarPagina(Long empresaId, String estado, LocalDate fechaInicio, LocalDate fechaFin,
+            LocalDate cursorFecha, Integer cursorId, int limite);
+
+    long contarConFiltros(Long empresaId, String estado, LocalDate fechaInicio, LocalDate fechaFin);
+}
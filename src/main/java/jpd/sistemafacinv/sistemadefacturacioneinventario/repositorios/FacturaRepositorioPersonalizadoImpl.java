@@ -0,0 +1,70 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.FacturaListadoDTO;
+
+public class FacturaRepositorioPersonalizadoImpl implements FacturaRepositorioPersonalizado {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<FacturaListadoDTO> buscarPagina(Long empresaId, String estado, LocalDate fechaInicio, LocalDate fechaFin,
+            LocalDate cursorFecha, Integer cursorId, int limite) {
+        Map<String, Object> parametros = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT new jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO."
+                + "FacturaListadoDTO(f.id, f.numeroFactura, f.fecha, c.nombre, f.estado, f.total) "
+                + "FROM Factura f LEFT JOIN f.cliente c ");
+        jpql.append(filtros(empresaId, estado, fechaInicio, fechaFin, parametros));
+
+        // Seguir desde la última fila mostrada en lugar de saltar OFFSET filas
+        if (cursorFecha != null && cursorId != null) {
+            jpql.append(" AND (f.fecha < :cursorFecha OR (f.fecha = :cursorFecha AND f.id < :cursorId))");
+            parametros.put("cursorFecha", cursorFecha);
+            parametros.put("cursorId", cursorId);
+        }
+        jpql.append(" ORDER BY f.fecha DESC, f.id DESC");
+
+        TypedQuery<FacturaListadoDTO> query = entityManager.createQuery(jpql.toString(), FacturaListadoDTO.class);
+        parametros.forEach(query::setParameter);
+        return query.setMaxResults(limite).getResultList();
+    }
+
+    @Override
+    public long contarConFiltros(Long empresaId, String estado, LocalDate fechaInicio, LocalDate fechaFin) {
+        Map<String, Object> parametros = new HashMap<>();
+        String jpql = "SELECT COUNT(f) FROM Factura f " + filtros(empresaId, estado, fechaInicio, fechaFin, parametros);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql, Long.class);
+        parametros.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    // Solo los filtros informados llegan al SQL (sin "(:p IS NULL OR ...)")
+    private String filtros(Long empresaId, String estado, LocalDate fechaInicio, LocalDate fechaFin,
+            Map<String, Object> parametros) {
+        StringBuilder where = new StringBuilder("WHERE f.empresa.id = :empresaId");
+        parametros.put("empresaId", empresaId);
+
+        if (estado != null && !estado.isBlank()) {
+            where.append(" AND f.estado = :estado");
+            parametros.put("estado", estado);
+        }
+        if (fechaInicio != null) {
+            where.append(" AND f.fecha >= :fechaInicio");
+            parametros.put("fechaInicio", fechaInicio);
+        }
+        if (fechaFin != null) {
+            where.append(" AND f.fecha <= :fechaFin");
+            parametros.put("fechaFin", fechaFin);
+        }
+        return where.toString();
+    }
+}
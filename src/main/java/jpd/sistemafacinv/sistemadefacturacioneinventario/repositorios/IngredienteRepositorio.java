@@ -2,10 +2,12 @@ package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -28,5 +30,38 @@ public interface IngredienteRepositorio extends JpaRepository<Ingrediente, Long>
         //metodo para editar
         boolean existsByNombreAndEmpresa_IdAndIdNot(String nombre, Long empresaId, Long id);
 
+        // Descuento condicional: solo afecta la fila si alcanza el stock
+        @Modifying
+        @Query("UPDATE Ingrediente i SET i.stockActual = i.stockActual - :cantidad " +
+                        "WHERE i.id = :id AND i.empresa.id = :empresaId AND i.stockActual >= :cantidad")
+        int descontarStockSiDisponible(
+                        @Param("id") Long id,
+                        @Param("empresaId") Long empresaId,
+                        @Param("cantidad") double cantidad);
 
+        // Ingredientes de la lista que quedaron por debajo de su mínimo (alerta tras una venta)
+        @Query("SELECT i FROM Ingrediente i WHERE i.empresa.id = :empresaId AND i.id IN :ids " +
+                        "AND i.stockMinimo > 0 AND i.stockActual < i.stockMinimo")
+        List<Ingrediente> findBajoMinimo(
+                        @Param("empresaId") Long empresaId,
+                        @Param("ids") Collection<Long> ids);
+
+        // Incremento atómico (compras, anulaciones): no pisa descuentos concurrentes
+        @Modifying
+        @Query("UPDATE Ingrediente i SET i.stockActual = i.stockActual + :cantidad " +
+                        "WHERE i.id = :id AND i.empresa.id = :empresaId")
+        int aumentarStock(
+                        @Param("id") Long id,
+                        @Param("empresaId") Long empresaId,
+                        @Param("cantidad") double cantidad);
+
+
+        // Ajuste del cierre definitivo: stock = stock real contado, en una sola sentencia
+        @Modifying
+        @Query("UPDATE Ingrediente i SET i.stockActual = (" +
+                        "SELECT d.stockReal FROM DetalleCierreInventarioDiario d " +
+                        "WHERE d.cierre.id = :cierreId AND d.ingrediente.id = i.id) " +
+                        "WHERE i.empresa.id = :empresaId AND i.id IN (" +
+                        "SELECT d2.ingrediente.id FROM DetalleCierreInventarioDiario d2 WHERE d2.cierre.id = :cierreId)")
+        int ajustarStockACierre(@Param("cierreId") Long cierreId, @Param("empresaId") Long empresaId);
 }
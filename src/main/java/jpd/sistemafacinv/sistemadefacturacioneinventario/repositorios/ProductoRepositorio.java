@@ -1,10 +1,13 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -22,7 +25,12 @@ public interface ProductoRepositorio extends JpaRepository<Producto, Long> {
     List<Producto> findByTieneRecetaTrue();
 
     // NUEVOS métodos con filtro empresa_id
+    // Grilla del POS: sin caché de consultas, lleva el stock de los productos sin receta
     List<Producto> findByEmpresaId(Long empresaId);
+
+    // Listado de productos: muestra el nombre de la receta, se trae en el mismo SELECT
+    @EntityGraph(attributePaths = "receta")
+    List<Producto> findConRecetaByEmpresaId(Long empresaId);
     
     boolean existsByNombreAndEmpresa_Id(String nombre, Long empresaId);
 
@@ -32,4 +40,41 @@ public interface ProductoRepositorio extends JpaRepository<Producto, Long> {
 
     Optional<Producto> findByIdAndEmpresaId(Long id, Long empresaId);
 
+    // Productos de una venta con su receta e ingredientes en una sola consulta
+    @Query("SELECT DISTINCT p FROM Producto p " +
+            "LEFT JOIN FETCH p.receta r " +
+            "LEFT JOIN FETCH r.ingredientes rd " +
+            "LEFT JOIN FETCH rd.ingrediente " +
+            "WHERE p.id IN :ids AND p.empresa.id = :empresaId")
+    List<Producto> findByIdInAndEmpresaIdWithReceta(
+            @Param("ids") Collection<Long> ids,
+            @Param("empresaId") Long empresaId);
+
+    // Descuento condicional: solo afecta la fila si alcanza el stock
+    @Modifying
+    @Query("UPDATE Producto p SET p.stock = p.stock - :cantidad " +
+            "WHERE p.id = :id AND p.empresa.id = :empresaId AND p.stock >= :cantidad")
+    int descontarStockSiDisponible(
+            @Param("id") Long id,
+            @Param("empresaId") Long empresaId,
+            @Param("cantidad") double cantidad);
+
+    // Incremento atómico (anulaciones): no pisa descuentos concurrentes
+    @Modifying
+    @Query("UPDATE Producto p SET p.stock = p.stock + :cantidad " +
+            "WHERE p.id = :id AND p.empresa.id = :empresaId")
+    int aumentarStock(
+            @Param("id") Long id,
+            @Param("empresaId") Long empresaId,
+            @Param("cantidad") double cantidad);
+
+    // Ajuste del cierre definitivo: stock = stock real contado, en una sola sentencia
+    @Modifying
+    @Query("UPDATE Producto p SET p.stock = (" +
+            "SELECT d.stockReal FROM DetalleCierreInventarioDiario d " +
+            "WHERE d.cierre.id = :cierreId AND d.producto.id = p.id) " +
+            "WHERE p.empresa.id = :empresaId AND p.id IN (" +
+            "SELECT d2.producto.id FROM DetalleCierreInventarioDiario d2 WHERE d2.cierre.id = :cierreId)")
+    int ajustarStockACierre(@Param("cierreId") Long cierreId, @Param("empresaId") Long empresaId);
+
 }
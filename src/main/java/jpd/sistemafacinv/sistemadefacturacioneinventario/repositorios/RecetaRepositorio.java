@@ -3,12 +3,16 @@ package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.AvailableHints;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Receta;
 
 @Repository
@@ -16,15 +20,22 @@ import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Receta;
 public interface RecetaRepositorio extends JpaRepository<Receta, Integer> {
 
         // Métodos con filtro empresa_id
+        @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
         List<Receta> findByEmpresaId(Long empresaId);
 
+        @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
         Optional<Receta> findByIdAndEmpresaId(Long id, Long empresaId);
 
-        @Query("SELECT DISTINCT r FROM Receta r LEFT JOIN FETCH r.ingredientes WHERE r.empresa.id = :empresaId")
+        // Listado de recetas: cada línea muestra nombre y unidad del ingrediente
+        @Query("SELECT DISTINCT r FROM Receta r " +
+                        "LEFT JOIN FETCH r.ingredientes rd " +
+                        "LEFT JOIN FETCH rd.ingrediente " +
+                        "WHERE r.empresa.id = :empresaId")
         List<Receta> findByEmpresaIdWithIngredientes(@Param("empresaId") Long empresaId);
 
         @Query("SELECT r FROM Receta r " +
-                        "LEFT JOIN FETCH r.ingredientes " +
+                        "LEFT JOIN FETCH r.ingredientes rd " +
+                        "LEFT JOIN FETCH rd.ingrediente " +
                         "WHERE r.id = :id AND r.empresa.id = :empresaId")
         Optional<Receta> findByIdWithIngredientes(
                         @Param("id") Long id,
@@ -0,0 +1,83 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.hibernate.jpa.AvailableHints;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.ResumenDiario;
+
+@Repository
+public interface ResumenDiarioRepositorio extends JpaRepository<ResumenDiario, Long> {
+
+        boolean existsByEmpresaId(Long empresaId);
+
+        boolean existsByEmpresaIdAndFechaAndSelladoTrue(Long empresaId, LocalDate fecha);
+
+        // Días del rango que el cierre definitivo ya selló (la reconstrucción no los toca)
+        @Query("SELECT DISTINCT r.fecha FROM ResumenDiario r " +
+                        "WHERE r.empresa.id = :empresaId AND r.sellado = true AND r.fecha BETWEEN :inicio AND :fin")
+        List<LocalDate> findFechasSelladas(@Param("empresaId") Long empresaId,
+                        @Param("inicio") LocalDate inicio,
+                        @Param("fin") LocalDate fin);
+
+        // Suma atómica sobre la fila del día (la crea si no existe); una fila sellada no cambia
+        // Tabla afectada declarada: sin ella Hibernate vacía toda la caché de segundo nivel en cada venta
+        @Modifying
+        @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "resumen_diario"))
+        @Query(value = "INSERT INTO resumen_diario (empresa_id, fecha, tipo, item_id, cantidad_vendida, ingresos, " +
+                        "cantidad_consumida, cantidad_comprada, costo_compras, sellado) " +
+                        "VALUES (:empresaId, :fecha, :tipo, :itemId, :vendida, :ingresos, " +
+                        ":consumida, :comprada, :costoCompras, false) " +
+                        "ON DUPLICATE KEY UPDATE " +
+                        "cantidad_vendida = CASE WHEN sellado THEN cantidad_vendida " +
+                        "ELSE cantidad_vendida + VALUES(cantidad_vendida) END, " +
+                        "ingresos = CASE WHEN sellado THEN ingresos ELSE ingresos + VALUES(ingresos) END, " +
+                        "cantidad_consumida = CASE WHEN sellado THEN cantidad_consumida " +
+                        "ELSE cantidad_consumida + VALUES(cantidad_consumida) END, " +
+                        "cantidad_comprada = CASE WHEN sellado THEN cantidad_comprada " +
+                        "ELSE cantidad_comprada + VALUES(cantidad_comprada) END, " +
+                        "costo_compras = CASE WHEN sellado THEN costo_compras " +
+                        "ELSE costo_compras + VALUES(costo_compras) END", nativeQuery = true)
+        int sumar(@Param("empresaId") Long empresaId,
+                        @Param("fecha") LocalDate fecha,
+                        @Param("tipo") String tipo,
+                        @Param("itemId") Long itemId,
+                        @Param("vendida") double vendida,
+                        @Param("ingresos") double ingresos,
+                        @Param("consumida") double consumida,
+                        @Param("comprada") double comprada,
+                        @Param("costoCompras") double costoCompras);
+
+        @Modifying
+        @Query("DELETE FROM ResumenDiario r " +
+                        "WHERE r.empresa.id = :empresaId AND r.fecha BETWEEN :inicio AND :fin AND r.sellado = false")
+        int eliminarRango(@Param("empresaId") Long empresaId,
+                        @Param("inicio") LocalDate inicio,
+                        @Param("fin") LocalDate fin);
+
+        @Modifying
+        @Query("UPDATE ResumenDiario r SET r.sellado = true " +
+                        "WHERE r.empresa.id = :empresaId AND r.fecha = :fecha")
+        int sellarDia(@Param("empresaId") Long empresaId,
+                        @Param("fecha") LocalDate fecha);
+
+        @Query("SELECT r.tipo as tipo, r.itemId as itemId, " +
+                        "SUM(r.cantidadVendida) as cantidadVendida, SUM(r.ingresos) as ingresos, " +
+                        "SUM(r.cantidadConsumida) as cantidadConsumida, " +
+                        "SUM(r.cantidadComprada) as cantidadComprada, SUM(r.costoCompras) as costoCompras " +
+                        "FROM ResumenDiario r " +
+                        "WHERE r.empresa.id = :empresaId AND r.fecha BETWEEN :inicio AND :fin " +
+                        "GROUP BY r.tipo, r.itemId")
+        List<ResumenItemProjection> sumarPorItem(@Param("empresaId") Long empresaId,
+                        @Param("inicio") LocalDate inicio,
+                        @Param("fin") LocalDate fin);
+}
@@ -0,0 +1,18 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+// Totales de resumen diario sumados por ingrediente/producto en un rango de fechas
+public interface ResumenItemProjection {
+    String getTipo();
+
+    Long getItemId();
+
+    Double getCantidadVendida();
+
+    Double getIngresos();
+
+    Double getCantidadConsumida();
+
+    Double getCantidadComprada();
+
+    Double getCostoCompras();
+}
@@ -0,0 +1,27 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.SecuenciaDocumento;
+
+public interface SecuenciaDocumentoRepositorio extends JpaRepository<SecuenciaDocumento, Long> {
+
+    Optional<SecuenciaDocumento> findByEmpresaIdAndTipo(Long empresaId, String tipo);
+
+    boolean existsByEmpresaIdAndTipo(Long empresaId, String tipo);
+
+    // Toma el siguiente número: el lock de fila se mantiene hasta el commit del documento
+    @Modifying
+    @Query("UPDATE SecuenciaDocumento s SET s.ultimoValor = s.ultimoValor + 1 " +
+            "WHERE s.empresa.id = :empresaId AND s.tipo = :tipo")
+    int incrementar(@Param("empresaId") Long empresaId, @Param("tipo") String tipo);
+
+    // Valor escalar: no pasa por el contexto de persistencia de la transacción del documento
+    @Query("SELECT s.ultimoValor FROM SecuenciaDocumento s WHERE s.empresa.id = :empresaId AND s.tipo = :tipo")
+    long findUltimoValor(@Param("empresaId") Long empresaId, @Param("tipo") String tipo);
+}
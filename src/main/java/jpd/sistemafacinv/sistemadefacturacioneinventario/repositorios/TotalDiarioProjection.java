@@ -0,0 +1,14 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+import java.time.LocalDate;
+
+// Agregado de documentos crudos por día e ingrediente/producto (reconstrucción de resúmenes)
+public interface TotalDiarioProjection {
+    LocalDate getFecha();
+
+    Long getId();
+
+    Double getCantidad();
+
+    Double getImporte();
+}
@@ -0,0 +1,8 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+// Total y cantidad de facturas de un día (cierre diario)
+public interface TotalVentasProjection {
+    Double getTotal();
+
+    Long getCantidad();
+}
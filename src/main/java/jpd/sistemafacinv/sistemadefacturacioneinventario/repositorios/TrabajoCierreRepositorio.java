@@ -0,0 +1,61 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.TrabajoCierre;
+
+@Repository
+public interface TrabajoCierreRepositorio extends JpaRepository<TrabajoCierre, Long> {
+
+        // La vista de progreso muestra la fecha del cierre
+        @EntityGraph(attributePaths = "cierre")
+        Optional<TrabajoCierre> findByIdAndEmpresaId(Long id, Long empresaId);
+
+        Optional<TrabajoCierre> findFirstByCierreIdAndEstadoIn(Long cierreId, Collection<String> estados);
+
+        List<TrabajoCierre> findByEstadoOrderByIdAsc(String estado);
+
+        // Tomar el trabajo: solo un hilo/nodo pasa de EN_COLA a EJECUTANDO
+        @Modifying
+        @Query("UPDATE TrabajoCierre t SET t.estado = 'EJECUTANDO', t.fechaInicio = :ahora, t.ultimoLatido = :ahora " +
+                        "WHERE t.id = :id AND t.estado = 'EN_COLA'")
+        int tomar(@Param("id") Long id, @Param("ahora") LocalDateTime ahora);
+
+        @Modifying
+        @Query("UPDATE TrabajoCierre t SET t.progreso = :progreso, t.paso = :paso WHERE t.id = :id")
+        int actualizarProgreso(@Param("id") Long id,
+                        @Param("progreso") int progreso,
+                        @Param("paso") String paso);
+
+        @Modifying
+        @Query("UPDATE TrabajoCierre t SET t.estado = :estado, t.progreso = :progreso, t.paso = :paso, " +
+                        "t.error = :error, t.fechaFin = :ahora WHERE t.id = :id")
+        int finalizar(@Param("id") Long id,
+                        @Param("estado") String estado,
+                        @Param("progreso") int progreso,
+                        @Param("paso") String paso,
+                        @Param("error") String error,
+                        @Param("ahora") LocalDateTime ahora);
+
+        // Renovar el latido de los trabajos que este nodo tiene en curso
+        @Modifying
+        @Query("UPDATE TrabajoCierre t SET t.ultimoLatido = :ahora WHERE t.id IN :ids AND t.estado = 'EJECUTANDO'")
+        int latir(@Param("ids") Collection<Long> ids, @Param("ahora") LocalDateTime ahora);
+
+        // Los que quedaron a medias (su nodo dejó de latir) vuelven a la cola; el cierre se hace en una sola
+        // transacción, así que repetirlo es seguro. Los que siguen latiendo en otro nodo no se tocan
+        @Modifying
+        @Query("UPDATE TrabajoCierre t SET t.estado = 'EN_COLA', t.fechaInicio = NULL, t.ultimoLatido = NULL " +
+                        "WHERE t.estado = 'EJECUTANDO' AND (t.ultimoLatido IS NULL OR t.ultimoLatido < :limite)")
+        int reencolarInterrumpidos(@Param("limite") LocalDateTime limite);
+}
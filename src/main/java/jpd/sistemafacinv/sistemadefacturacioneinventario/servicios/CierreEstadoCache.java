@@ -0,0 +1,86 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.CierreInventarioDiarioRepositorio;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Caché por empresa y fecha de "¿el día tiene cierre COMPLETADO?".
+ * Un cierre completado no se reabre, así que el "sí" se guarda sin
+ * vencimiento; el "no" vence pronto por si otro nodo completa el cierre.
+ */
+@Component
+@RequiredArgsConstructor
+public class CierreEstadoCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CierreEstadoCache.class);
+
+    private static final long VIGENCIA_PENDIENTE_MS = 30_000;
+    private static final int MAX_ENTRADAS = 5_000;
+
+    private final CierreInventarioDiarioRepositorio cierreRepo;
+
+    private final Map<String, Estado> estados = new ConcurrentHashMap<>();
+
+    public boolean diaCerrado(long empresaId, LocalDate fecha) {
+        String clave = empresaId + ":" + fecha;
+        Estado estado = estados.get(clave);
+        if (estado != null && (estado.cerrado || estado.expira > System.currentTimeMillis())) {
+            return estado.cerrado;
+        }
+
+        boolean cerrado = cierreRepo.existeCierrePorFechaYEstadoYEmpresaId(fecha, "COMPLETADO", empresaId);
+        guardar(clave, fecha, cerrado);
+        log.trace("Estado de cierre consultado en BD - Empresa ID: {}, Fecha: {}, Cerrado: {}",
+                empresaId, fecha, cerrado);
+        return cerrado;
+    }
+
+    // Llamar cuando un cierre pasa a COMPLETADO (se aplica tras el commit)
+    public void marcarCerrado(long empresaId, LocalDate fecha) {
+        String clave = empresaId + ":" + fecha;
+        Runnable accion = () -> guardar(clave, fecha, true);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+        log.debug("Cierre marcado como completado en caché - Empresa ID: {}, Fecha: {}", empresaId, fecha);
+    }
+
+    private void guardar(String clave, LocalDate fecha, boolean cerrado) {
+        if (estados.size() > MAX_ENTRADAS) {
+            // El interceptor solo consulta hoy, ayer y anteayer
+            LocalDate limite = LocalDate.now().minusDays(3);
+            estados.values().removeIf(e -> e.fecha.isBefore(limite));
+        }
+        estados.put(clave, new Estado(fecha, cerrado,
+                cerrado ? Long.MAX_VALUE : System.currentTimeMillis() + VIGENCIA_PENDIENTE_MS));
+    }
+
+    private static class Estado {
+        private final LocalDate fecha;
+        private final boolean cerrado;
+        private final long expira;
+
+        private Estado(LocalDate fecha, boolean cerrado, long expira) {
+            this.fecha = fecha;
+            this.cerrado = cerrado;
+            this.expira = expira;
+        }
+    }
+}
@@ -1,28 +1,30 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DetalleCierreInventarioDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Usuario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.DetallesCierreDTO;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.CierreInventarioDiarioRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.DetalleCierreInventarioDiarioRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EmpresaRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ProductoRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.TotalVentasProjection;
 import lombok.AllArgsConstructor;
 
 @Service
@@ -37,10 +39,19 @@ public class CierreInventarioDiarioService {
     private final ProductoRepositorio productoRepository;
     private final FacturaRepositorio facturaRepository;
     private final EmpresaRepositorio empresaRepositorio;
+    private final StockPosibleCache stockPosibleCache;
+    private final ResumenDiarioServicio resumenDiarioServicio;
+    private final CierreEstadoCache cierreEstadoCache;
+    private final MetricasNegocio metricas;
 
     // 1. INICIAR NUEVO CIERRE
     // esto es un String miestras no haya un sistema de usuarios
+    @Transactional
     public CierreInventarioDiario iniciarNuevoCierre(Usuario usuario) {
+        return metricas.medir(MetricasNegocio.CIERRES, "iniciar", () -> crearCierreDeHoy(usuario));
+    }
+
+    private CierreInventarioDiario crearCierreDeHoy(Usuario usuario) {
         Long empresaId = TenantContext.getCurrentTenant();
         log.info("Iniciando nuevo cierre diario para empresa ID: {}, Usuario: {}", empresaId,
                 usuario.getNombreUsuario());
@@ -81,58 +92,18 @@ public class CierreInventarioDiarioService {
     }
 
     // 2. PRECARGAR DETALLES (ingredientes + productos sin receta)
+    // Dos INSERT ... SELECT: el stock se copia en la BD sin cargar entidades
     private void precargarDetallesCierre(CierreInventarioDiario cierre) {
+        Long empresaId = cierre.getEmpresa().getId();
         log.debug("Precargando detalles para cierre ID: {}", cierre.getId());
 
-        List<DetalleCierreInventarioDiario> detalles = new ArrayList<>();
-        // OBTENER EMPRESA DEL CIERRE
-        Empresa empresa = cierre.getEmpresa();
-
         // Ingredientes (materia prima)
-        List<Ingrediente> ingredientes = ingredienteRepository.findByEmpresaId(empresa.getId());
-        log.debug("Encontrados {} ingredientes para empresa ID: {}", ingredientes.size(), empresa.getId());
-
-        for (Ingrediente ing : ingredientes) {
-            DetalleCierreInventarioDiario detalle = DetalleCierreInventarioDiario.builder()
-                    .cierre(cierre)
-                    .ingrediente(ing)
-                    .stockTeorico(ing.getStockActual())
-                    .costoUnitario(ing.getPrecio())
-                    .stockReal(0) // Por llenar
-                    .stockMerma(0) // por llenar
-                    .stockDesperdicio(0) // por llenar
-                    .diferencia(0) // el sistema lo calcula
-                    .valorDiferencia(0) // el sistema lo calcula
-                    .build();
-            detalles.add(detalle);
-            log.trace("Detalle precargado - Ingrediente: {} (ID: {}), Stock teórico: {}",
-                    ing.getNombre(), ing.getId(), ing.getStockActual());
-        }
-
+        int ingredientes = detalleCierreRepository.precargarIngredientes(cierre.getId(), empresaId);
         // Productos sin receta (comprados para revender)
-        List<Producto> productosSinReceta = productoRepository.findByEmpresaIdAndTieneRecetaFalse(empresa.getId());
-        log.debug("Encontrados {} productos sin receta para empresa ID: {}", productosSinReceta.size(),
-                empresa.getId());
-
-        for (Producto prod : productosSinReceta) {
-            DetalleCierreInventarioDiario detalle = DetalleCierreInventarioDiario.builder()
-                    .cierre(cierre)
-                    .producto(prod)
-                    .stockTeorico(prod.getStock())
-                    .costoUnitario(prod.getPrecioVenta())
-                    .stockReal(0)
-                    .stockMerma(0)
-                    .stockDesperdicio(0)
-                    .diferencia(0)
-                    .valorDiferencia(0)
-                    .build();
-            detalles.add(detalle);
-            log.trace("Detalle precargado - Producto: {} (ID: {}), Stock teórico: {}",
-                    prod.getNombre(), prod.getId(), prod.getStock());
-        }
+        int productos = detalleCierreRepository.precargarProductosSinReceta(cierre.getId(), empresaId);
 
-        detalleCierreRepository.saveAll(detalles);
-        log.info("Detalles precargados: {} totales para cierre ID: {}", detalles.size(), cierre.getId());
+        log.info("Detalles precargados: {} totales ({} ingredientes, {} productos sin receta) para cierre ID: {}",
+                ingredientes + productos, ingredientes, productos, cierre.getId());
     }
 
     // 3. ACTUALIZAR DETALLE (stock real, merma, desperdicio)
@@ -150,15 +121,50 @@ public class CierreInventarioDiarioService {
         log.trace("Detalle encontrado - Stock teórico: {}, Stock real anterior: {}",
                 detalle.getStockTeorico(), detalle.getStockReal());
 
-        detalle.setStockReal(stockReal);
-        detalle.setStockMerma(merma);
-        detalle.setStockDesperdicio(desperdicio);
+        aplicarConteo(detalle, stockReal, merma, desperdicio);
 
-        // Calcular diferencia
-        double diferencia = ((stockReal + detalle.getStockMerma() + detalle.getStockDesperdicio())
-                - detalle.getStockTeorico());
-        detalle.setDiferencia(diferencia);
+        detalleCierreRepository.save(detalle);
+        log.info("Detalle actualizado ID: {}, Stock real: {}, Diferencia: {}, Valor diferencia: {}",
+                detalleId, stockReal, detalle.getDiferencia(), detalle.getValorDiferencia());
+    }
 
+    // 3b. ACTUALIZAR TODOS LOS DETALLES DEL FORMULARIO (una consulta + UPDATEs en lote al confirmar)
+    @Transactional
+    public void actualizarDetalles(Long cierreId, List<DetallesCierreDTO.DetalleRequest> conteos) {
+        Long empresaId = TenantContext.getCurrentTenant();
+        if (conteos == null || conteos.isEmpty()) {
+            return;
+        }
+        log.debug("Actualizando {} detalles del cierre ID: {} para empresa ID: {}", conteos.size(), cierreId,
+                empresaId);
+
+        Map<Long, DetalleCierreInventarioDiario> detalles = new HashMap<>();
+        for (DetalleCierreInventarioDiario detalle : detalleCierreRepository
+                .findByCierreIdAndEmpresaIdConItems(cierreId, empresaId)) {
+            detalles.put(detalle.getId(), detalle);
+        }
+
+        int modificados = 0;
+        for (DetallesCierreDTO.DetalleRequest conteo : conteos) {
+            DetalleCierreInventarioDiario detalle = detalles.get(conteo.getId());
+            if (detalle == null) {
+                log.error("Detalle no encontrado ID: {} en cierre ID: {} para empresa ID: {}", conteo.getId(),
+                        cierreId, empresaId);
+                throw new RuntimeException("Detalle no encontrado");
+            }
+            // Las entidades están gestionadas: Hibernate agrupa los UPDATE (jdbc.batch_size) al hacer flush
+            if (aplicarConteo(detalle, valor(conteo.getStockReal()), valor(conteo.getMerma()),
+                    valor(conteo.getDesperdicio()))) {
+                modificados++;
+            }
+        }
+
+        log.info("Detalles actualizados en lote: {} de {} para cierre ID: {}", modificados, conteos.size(), cierreId);
+    }
+
+    // Aplica el conteo al detalle y recalcula la diferencia; devuelve si algo cambió
+    private boolean aplicarConteo(DetalleCierreInventarioDiario detalle, double stockReal,
+            double merma, double desperdicio) {
         // Calcular valor diferencia
         double costo = 0;
 
@@ -171,15 +177,27 @@ public class CierreInventarioDiarioService {
             log.trace("Es producto: {} (ID: {}), Costo: {}",
                     detalle.getProducto().getNombre(), detalle.getProducto().getId(), costo);
         }
-        // Actualizar costo unitario por si cambió
-        detalle.setCostoUnitario(costo);
 
+        // Calcular diferencia
+        double diferencia = (stockReal + merma + desperdicio) - detalle.getStockTeorico();
         double valor = diferencia * costo;
+
+        boolean cambio = detalle.getStockReal() != stockReal || detalle.getStockMerma() != merma
+                || detalle.getStockDesperdicio() != desperdicio || detalle.getDiferencia() != diferencia
+                || detalle.getCostoUnitario() != costo || detalle.getValorDiferencia() != valor;
+
+        detalle.setStockReal(stockReal);
+        detalle.setStockMerma(merma);
+        detalle.setStockDesperdicio(desperdicio);
+        detalle.setDiferencia(diferencia);
+        // Actualizar costo unitario por si cambió
+        detalle.setCostoUnitario(costo);
         detalle.setValorDiferencia(valor);
+        return cambio;
+    }
 
-        detalleCierreRepository.save(detalle);
-        log.info("Detalle actualizado ID: {}, Stock real: {}, Diferencia: {}, Valor diferencia: {}",
-                detalleId, stockReal, diferencia, valor);
+    private double valor(Double numero) {
+        return numero != null ? numero : 0.0;
     }
 
     // 4. COMPLETAR CIERRE (calcular totales y actualizar inventario si se desea)
@@ -211,10 +229,27 @@ public class CierreInventarioDiarioService {
         log.info("Cierre marcado como PRE-COMPLETADO ID: {} para empresa ID: {}", cierreId, empresaId);
     }
 
+    @Transactional
     public void completarCierreDefinitivo(Long cierreId) {
+        completarCierreDefinitivo(cierreId, (progreso, paso) -> {
+        });
+    }
+
+    // Versión con avance (trabajo en segundo plano): recibe porcentaje y descripción de cada paso
+    @Transactional
+    public void completarCierreDefinitivo(Long cierreId, BiConsumer<Integer, String> avance) {
+        metricas.medir(MetricasNegocio.CIERRES, "definitivo", () -> aplicarCierreDefinitivo(cierreId, avance));
+    }
+
+    private void aplicarCierreDefinitivo(Long cierreId, BiConsumer<Integer, String> avance) {
+        Long empresaId = TenantContext.getCurrentTenant();
         log.info("Completando cierre definitivo ID: {}", cierreId);
 
-        CierreInventarioDiario cierre = buscarCierre(cierreId);
+        CierreInventarioDiario cierre = cierreRepository.bloquearPorIdYEmpresaId(cierreId, empresaId)
+                .orElseThrow(() -> {
+                    log.error("Cierre no encontrado ID: {} para empresa ID: {}", cierreId, empresaId);
+                    return new RuntimeException("Cierre no encontrado");
+                });
 
         // Verificar que esté en PRE-COMPLETADO
         if (!"PRE-COMPLETADO".equals(cierre.getEstado())) {
@@ -224,52 +259,38 @@ public class CierreInventarioDiarioService {
         }
 
         log.debug("Calculando ventas del día para cierre ID: {}", cierreId);
+        avance.accept(10, "Calculando ventas del día");
         // Calcular ventas del día
         calcularVentasDelDia(cierre);
 
-        List<DetalleCierreInventarioDiario> detalles = detalleCierreRepository.findByCierre(cierre);
-        log.debug("Ajustando inventario para {} detalles", detalles.size());
-        ajustarInventarioALoReal(detalles);
+        avance.accept(30, "Ajustando inventario");
+        ajustarInventarioALoReal(cierre);
+        stockPosibleCache.invalidarEmpresa(empresaId);
 
+        avance.accept(60, "Actualizando estado del cierre");
         cierre.setEstado("COMPLETADO");
         CierreInventarioDiario cierreCompletado = cierreRepository.save(cierre);
 
+        cierreEstadoCache.marcarCerrado(empresaId, cierre.getFecha());
+
+        // Confirmar los totales del día en la tabla de resúmenes
+        avance.accept(75, "Sellando resumen del día");
+        resumenDiarioServicio.sellarDia(empresaId, cierre.getFecha());
+
         log.info(
                 "Cierre completado definitivamente ID: {} para empresa ID: {}. Total ventas: {}, Cantidad facturas: {}",
-                cierreId, cierre.getEmpresa().getId(), cierreCompletado.getTotalVentas(),
+                cierreId, empresaId, cierreCompletado.getTotalVentas(),
                 cierreCompletado.getCantidadFacturas());
     }
 
     // 5. AJUSTAR INVENTARIO (opcional)
-    private void ajustarInventarioALoReal(List<DetalleCierreInventarioDiario> detalles) {
-        log.debug("Ajustando inventario para {} detalles", detalles.size());
-
-        int ingredientesAjustados = 0;
-        int productosAjustados = 0;
-
-        for (DetalleCierreInventarioDiario detalle : detalles) {
-            if (detalle.getIngrediente() != null) {
-                // Ajustar ingrediente
-                Ingrediente ing = detalle.getIngrediente();
-                double stockAnterior = ing.getStockActual();
-                ing.setStockActual(detalle.getStockReal());
-                ingredienteRepository.save(ing);
-                ingredientesAjustados++;
-
-                log.trace("Ingrediente ajustado: {} (ID: {}). Anterior: {}, Nuevo: {}",
-                        ing.getNombre(), ing.getId(), stockAnterior, detalle.getStockReal());
-            } else if (detalle.getProducto() != null) {
-                // Ajustar producto sin receta
-                Producto prod = detalle.getProducto();
-                double stockAnterior = prod.getStock();
-                prod.setStock(detalle.getStockReal());
-                productoRepository.save(prod);
-                productosAjustados++;
-
-                log.trace("Producto ajustado: {} (ID: {}). Anterior: {}, Nuevo: {}",
-                        prod.getNombre(), prod.getId(), stockAnterior, detalle.getStockReal());
-            }
-        }
+    // Un UPDATE por tipo: el stock toma el valor contado en los detalles del cierre
+    private void ajustarInventarioALoReal(CierreInventarioDiario cierre) {
+        Long empresaId = cierre.getEmpresa().getId();
+        log.debug("Ajustando inventario al conteo del cierre ID: {}", cierre.getId());
+
+        int ingredientesAjustados = ingredienteRepository.ajustarStockACierre(cierre.getId(), empresaId);
+        int productosAjustados = productoRepository.ajustarStockACierre(cierre.getId(), empresaId);
 
         log.info("Inventario ajustado: {} ingredientes, {} productos", ingredientesAjustados, productosAjustados);
     }
@@ -330,22 +351,25 @@ public class CierreInventarioDiarioService {
         Long empresaId = cierre.getEmpresa().getId();
         log.debug("Calculando ventas del día {} para empresa ID: {}", fecha, empresaId);
 
-        // Buscar facturas del día
-        List<Factura> facturasDelDia = facturaRepository.findByFechaAndEstadoAndEmpresaId(fecha, "PAGADA", empresaId);
-
-        double totalVentas = facturasDelDia.stream()
-                .mapToDouble(Factura::getTotal)
-                .sum();
+        // Suma y conteo en la BD, sin cargar las facturas
+        TotalVentasProjection ventas = facturaRepository.sumarVentasDelDia(fecha, "PAGADA", empresaId);
+        double totalVentas = ventas.getTotal() != null ? ventas.getTotal() : 0.0;
+        int cantidadFacturas = ventas.getCantidad() != null ? ventas.getCantidad().intValue() : 0;
 
         cierre.setTotalVentas(totalVentas);
-        cierre.setCantidadFacturas(facturasDelDia.size());
+        cierre.setCantidadFacturas(cantidadFacturas);
 
         log.debug("Ventas calculadas: {} facturas, Total: {} para fecha: {}",
-                facturasDelDia.size(), totalVentas, fecha);
+                cantidadFacturas, totalVentas, fecha);
     }
 
     // En CierreInventarioDiarioService.java
+@Transactional
 public CierreInventarioDiario iniciarCierreParaFecha(Usuario usuario, LocalDate fechaCierre) {
+    return metricas.medir(MetricasNegocio.CIERRES, "iniciar", () -> crearCierreParaFecha(usuario, fechaCierre));
+}
+
+private CierreInventarioDiario crearCierreParaFecha(Usuario usuario, LocalDate fechaCierre) {
     Long empresaId = TenantContext.getCurrentTenant();
     log.info("Iniciando cierre para fecha específica: {} para empresa ID: {}, Usuario: {}", 
             fechaCierre, empresaId, usuario.getNombreUsuario());
@@ -0,0 +1,209 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.TrabajoCierre;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.CierreInventarioDiarioRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.TrabajoCierreRepositorio;
+
+/**
+ * Ejecuta el cierre definitivo fuera de la petición HTTP. El trabajo queda
+ * guardado en BD (EN_COLA, EJECUTANDO, TERMINADO, FALLIDO) con su progreso,
+ * que la vista consulta periódicamente; al arrancar se retoman los pendientes.
+ * Mientras un nodo ejecuta un trabajo renueva su latido; solo los trabajos
+ * cuyo latido venció (nodo caído o reiniciado) vuelven a la cola.
+ */
+@Service
+public class CierreTrabajoServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(CierreTrabajoServicio.class);
+
+    private final TrabajoCierreRepositorio trabajoRepo;
+    private final CierreInventarioDiarioRepositorio cierreRepo;
+    private final CierreInventarioDiarioService cierreService;
+    private final TaskExecutor cierreExecutor;
+    // El progreso se confirma aparte para que sea visible mientras el cierre sigue en su transacción
+    private final TransactionTemplate transaccionNueva;
+    // Sin latido durante este tiempo, el trabajo se da por interrumpido
+    private final long vencimientoLatidoSegundos;
+    // Trabajos que corren en este nodo (los que renueva el latido)
+    private final Set<Long> enCurso = ConcurrentHashMap.newKeySet();
+
+    public CierreTrabajoServicio(TrabajoCierreRepositorio trabajoRepo,
+            CierreInventarioDiarioRepositorio cierreRepo,
+            CierreInventarioDiarioService cierreService,
+            @Qualifier("cierreExecutor") TaskExecutor cierreExecutor,
+            PlatformTransactionManager transactionManager,
+            @Value("${sistema.cierre.vencimiento-latido-segundos:120}") long vencimientoLatidoSegundos) {
+        this.trabajoRepo = trabajoRepo;
+        this.cierreRepo = cierreRepo;
+        this.cierreService = cierreService;
+        this.cierreExecutor = cierreExecutor;
+        this.vencimientoLatidoSegundos = vencimientoLatidoSegundos;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Registra el cierre definitivo y lo lanza tras el commit; si ya hay uno pendiente, devuelve ese
+    @Transactional
+    public TrabajoCierre encolar(Long cierreId) {
+        Long empresaId = TenantContext.getCurrentTenant();
+        CierreInventarioDiario cierre = cierreService.buscarCierre(cierreId);
+
+        Optional<TrabajoCierre> pendiente = trabajoRepo.findFirstByCierreIdAndEstadoIn(cierreId,
+                List.of(TrabajoCierre.EN_COLA, TrabajoCierre.EJECUTANDO));
+        if (pendiente.isPresent()) {
+            log.info("Cierre ID: {} ya tiene un trabajo pendiente ID: {}", cierreId, pendiente.get().getId());
+            return pendiente.get();
+        }
+
+        if (!"PRE-COMPLETADO".equals(cierre.getEstado())) {
+            log.error("Cierre no está en PRE-COMPLETADO. Estado actual: {}, Cierre ID: {}", cierre.getEstado(),
+                    cierreId);
+            throw new RuntimeException("El cierre debe estar en PRE-COMPLETADO");
+        }
+
+        TrabajoCierre trabajo = trabajoRepo.save(TrabajoCierre.builder()
+                .empresa(cierre.getEmpresa())
+                .cierre(cierre)
+                .estado(TrabajoCierre.EN_COLA)
+                .progreso(0)
+                .paso("En cola")
+                .fechaCreacion(LocalDateTime.now())
+                .build());
+        log.info("Trabajo de cierre ID: {} encolado para cierre ID: {}, empresa ID: {}", trabajo.getId(), cierreId,
+                empresaId);
+
+        despacharTrasCommit(trabajo.getId());
+        return trabajo;
+    }
+
+    public TrabajoCierre buscarTrabajo(Long trabajoId) {
+        Long empresaId = TenantContext.getCurrentTenant();
+        return trabajoRepo.findByIdAndEmpresaId(trabajoId, empresaId)
+                .orElseThrow(() -> {
+                    log.error("Trabajo de cierre no encontrado ID: {} para empresa ID: {}", trabajoId, empresaId);
+                    return new RuntimeException("Trabajo de cierre no encontrado");
+                });
+    }
+
+    // Arranque: retomar lo que quedó en cola o a medias (sin latido) al apagarse la aplicación
+    public void reanudarPendientes() {
+        despacharEnCola(reencolarVencidos());
+    }
+
+    private void despacharEnCola(int interrumpidos) {
+        List<TrabajoCierre> enCola = trabajoRepo.findByEstadoOrderByIdAsc(TrabajoCierre.EN_COLA);
+        if (enCola.isEmpty()) {
+            return;
+        }
+        log.info("Retomando {} trabajos de cierre pendientes ({} interrumpidos)", enCola.size(), interrumpidos);
+        enCola.forEach(trabajo -> cierreExecutor.execute(() -> ejecutar(trabajo.getId())));
+    }
+
+    // Renueva el latido de lo que corre aquí y retoma lo que dejó de latir en otro nodo (o en este antes de reiniciar)
+    @Scheduled(fixedDelayString = "${sistema.cierre.latido-ms:15000}")
+    public void revisarLatidos() {
+        try {
+            if (!enCurso.isEmpty()) {
+                transaccionNueva.executeWithoutResult(
+                        status -> trabajoRepo.latir(List.copyOf(enCurso), LocalDateTime.now()));
+            }
+            int interrumpidos = reencolarVencidos();
+            if (interrumpidos > 0) {
+                despacharEnCola(interrumpidos);
+            }
+        } catch (Exception e) {
+            log.error("❌ Error revisando latidos de trabajos de cierre: {}", e.getMessage());
+        }
+    }
+
+    private int reencolarVencidos() {
+        LocalDateTime limite = LocalDateTime.now().minusSeconds(vencimientoLatidoSegundos);
+        Integer reencolados = transaccionNueva.execute(status -> trabajoRepo.reencolarInterrumpidos(limite));
+        return reencolados == null ? 0 : reencolados;
+    }
+
+    private void despacharTrasCommit(Long trabajoId) {
+        Runnable despacho = () -> cierreExecutor.execute(() -> ejecutar(trabajoId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    despacho.run();
+                }
+            });
+        } else {
+            despacho.run();
+        }
+    }
+
+    void ejecutar(Long trabajoId) {
+        TrabajoCierre trabajo = trabajoRepo.findById(trabajoId).orElse(null);
+        if (trabajo == null) {
+            log.warn("Trabajo de cierre ID: {} no existe", trabajoId);
+            return;
+        }
+        Integer tomado = transaccionNueva.execute(status -> trabajoRepo.tomar(trabajoId, LocalDateTime.now()));
+        if (tomado == null || tomado == 0) {
+            log.debug("Trabajo de cierre ID: {} ya fue tomado por otro hilo", trabajoId);
+            return;
+        }
+
+        Long empresaId = trabajo.getEmpresa().getId();
+        Long cierreId = trabajo.getCierre().getId();
+        enCurso.add(trabajoId);
+        try {
+            TenantContext.runAs(empresaId, () -> completar(trabajoId, cierreId, empresaId));
+        } finally {
+            enCurso.remove(trabajoId);
+        }
+    }
+
+    private void completar(Long trabajoId, Long cierreId, Long empresaId) {
+        try {
+            // Reanudado tras un reinicio: el cierre pudo confirmarse antes de registrar el fin del trabajo
+            boolean yaCompletado = cierreRepo.findByIdAndEmpresaId(cierreId, empresaId)
+                    .map(c -> "COMPLETADO".equals(c.getEstado()))
+                    .orElse(false);
+            if (!yaCompletado) {
+                cierreService.completarCierreDefinitivo(cierreId, (progreso, paso) -> transaccionNueva
+                        .executeWithoutResult(status -> trabajoRepo.actualizarProgreso(trabajoId, progreso, paso)));
+            }
+            finalizar(trabajoId, TrabajoCierre.TERMINADO, 100, "Cierre completado", null);
+            log.info("Trabajo de cierre ID: {} terminado (cierre ID: {}, empresa ID: {})", trabajoId, cierreId,
+                    empresaId);
+        } catch (Exception e) {
+            log.error("❌ Trabajo de cierre ID: {} fallido (cierre ID: {}): {}", trabajoId, cierreId, e.getMessage(), e);
+            String error = e.getMessage() != null && e.getMessage().length() > 255
+                    ? e.getMessage().substring(0, 255)
+                    : e.getMessage();
+            finalizar(trabajoId, TrabajoCierre.FALLIDO, 0, "Error", error);
+        }
+    }
+
+    private void finalizar(Long trabajoId, String estado, int progreso, String paso, String error) {
+        transaccionNueva.executeWithoutResult(
+                status -> trabajoRepo.finalizar(trabajoId, estado, progreso, paso, error, LocalDateTime.now()));
+    }
+}
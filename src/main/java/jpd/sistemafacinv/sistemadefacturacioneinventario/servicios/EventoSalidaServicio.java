@@ -0,0 +1,273 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.EventoSalida;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.RecetaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EventoSalidaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
+
+/**
+ * Bandeja de salida de ventas y anulaciones. La factura solo guarda el evento
+ * (misma transacción); tras el commit un hilo de eventosExecutor aplica los
+ * efectos que no necesitan consistencia inmediata: resumen diario y alertas de
+ * stock bajo. Cada empresa se procesa en orden de llegada y por un solo hilo a
+ * la vez dentro del nodo; entre nodos, tomar() evita procesar dos veces. Un
+ * fallo reintenta con espera creciente y detiene la empresa hasta entonces; al
+ * agotar los intentos el evento queda FALLIDO y la empresa sigue. La fila
+ * procesada queda como registro de lo aplicado.
+ */
+@Service
+public class EventoSalidaServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(EventoSalidaServicio.class);
+
+    private static final int LOTE = 100;
+
+    private final EventoSalidaRepositorio eventoRepo;
+    private final FacturaRepositorio facturaRepo;
+    private final IngredienteRepositorio ingredienteRepo;
+    private final ProductoServicio productoServicio;
+    private final ResumenDiarioServicio resumenDiarioServicio;
+    private final MetricasNegocio metricas;
+    private final TaskExecutor eventosExecutor;
+    // Cada evento en su propia transacción: un fallo no deshace los ya procesados
+    private final TransactionTemplate transaccionNueva;
+    private final int maxIntentos;
+    private final long esperaReintentoSegundos;
+    private final int retencionDias;
+
+    // Señales por empresa: la primera lanza el procesamiento, las demás solo piden otra vuelta
+    private final Map<Long, AtomicInteger> senalesPorEmpresa = new ConcurrentHashMap<>();
+
+    public EventoSalidaServicio(EventoSalidaRepositorio eventoRepo,
+            FacturaRepositorio facturaRepo,
+            IngredienteRepositorio ingredienteRepo,
+            ProductoServicio productoServicio,
+            ResumenDiarioServicio resumenDiarioServicio,
+            MetricasNegocio metricas,
+            @Qualifier("eventosExecutor") TaskExecutor eventosExecutor,
+            PlatformTransactionManager transactionManager,
+            @Value("${sistema.eventos.max-intentos:5}") int maxIntentos,
+            @Value("${sistema.eventos.espera-reintento-segundos:10}") long esperaReintentoSegundos,
+            @Value("${sistema.eventos.retencion-dias:30}") int retencionDias) {
+        this.eventoRepo = eventoRepo;
+        this.facturaRepo = facturaRepo;
+        this.ingredienteRepo = ingredienteRepo;
+        this.productoServicio = productoServicio;
+        this.resumenDiarioServicio = resumenDiarioServicio;
+        this.metricas = metricas;
+        this.eventosExecutor = eventosExecutor;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxIntentos = maxIntentos;
+        this.esperaReintentoSegundos = esperaReintentoSegundos;
+        this.retencionDias = retencionDias;
+    }
+
+    // Se llama dentro de la transacción de la factura: si esta se revierte, el evento tampoco existe
+    public EventoSalida registrar(String tipo, Factura factura) {
+        LocalDateTime ahora = LocalDateTime.now();
+        EventoSalida evento = eventoRepo.save(EventoSalida.builder()
+                .empresa(factura.getEmpresa())
+                .tipo(tipo)
+                .facturaId((long) factura.getId())
+                .fecha(factura.getFecha())
+                .estado(EventoSalida.PENDIENTE)
+                .intentos(0)
+                .proximoIntento(ahora)
+                .fechaCreacion(ahora)
+                .build());
+        log.debug("Evento {} ID: {} registrado para factura ID: {}", tipo, evento.getId(), factura.getId());
+
+        despacharTrasCommit(factura.getEmpresa().getId());
+        return evento;
+    }
+
+    // Revisión periódica: reintentos vencidos, eventos de antes de un reinicio o señales rechazadas
+    @Scheduled(fixedDelayString = "${sistema.eventos.revision-ms:10000}")
+    public void revisarPendientes() {
+        try {
+            for (Long empresaId : eventoRepo.findEmpresasConPendientes(LocalDateTime.now())) {
+                despachar(empresaId);
+            }
+        } catch (Exception e) {
+            log.error("❌ Error revisando eventos pendientes: {}", e.getMessage());
+        }
+    }
+
+    // Los procesados y omitidos se conservan como registro durante la retención; los FALLIDO quedan para revisión
+    @Scheduled(cron = "${sistema.eventos.purga-cron:0 30 3 * * *}")
+    public void purgarProcesados() {
+        Integer borrados = transaccionNueva.execute(status -> eventoRepo.purgar(
+                List.of(EventoSalida.PROCESADO, EventoSalida.OMITIDO),
+                LocalDateTime.now().minusDays(retencionDias)));
+        log.info("Eventos de salida purgados: {} (retención {} días)", borrados, retencionDias);
+    }
+
+    void despachar(Long empresaId) {
+        AtomicInteger senales = senalesPorEmpresa.computeIfAbsent(empresaId, id -> new AtomicInteger());
+        if (senales.getAndIncrement() > 0) {
+            return;
+        }
+        try {
+            eventosExecutor.execute(() -> drenar(empresaId, senales));
+        } catch (TaskRejectedException e) {
+            senales.set(0);
+            log.warn("Cola de eventos llena, empresa ID: {} queda para la revisión periódica", empresaId);
+        }
+    }
+
+    private void despacharTrasCommit(Long empresaId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    despachar(empresaId);
+                }
+            });
+        } else {
+            despachar(empresaId);
+        }
+    }
+
+    // Repite mientras lleguen señales durante la vuelta: ningún evento confirmado queda sin ver
+    private void drenar(Long empresaId, AtomicInteger senales) {
+        int vistas;
+        do {
+            vistas = senales.get();
+            try {
+                TenantContext.runAs(empresaId, () -> procesarPendientes(empresaId));
+            } catch (Exception e) {
+                log.error("❌ Error procesando eventos de empresa ID: {}: {}", empresaId, e.getMessage(), e);
+            }
+        } while (senales.addAndGet(-vistas) > 0);
+    }
+
+    private void procesarPendientes(Long empresaId) {
+        while (true) {
+            List<EventoSalida> eventos = eventoRepo.findByEmpresaIdAndEstadoOrderByIdAsc(empresaId,
+                    EventoSalida.PENDIENTE, PageRequest.of(0, LOTE));
+            LocalDateTime ahora = LocalDateTime.now();
+            for (EventoSalida evento : eventos) {
+                // En espera de reintento: los siguientes de la empresa esperan con él
+                if (evento.getProximoIntento() != null && evento.getProximoIntento().isAfter(ahora)) {
+                    return;
+                }
+                if (!procesar(empresaId, evento)) {
+                    return;
+                }
+            }
+            if (eventos.size() < LOTE) {
+                return;
+            }
+        }
+    }
+
+    // false si el evento quedó esperando un reintento
+    private boolean procesar(Long empresaId, EventoSalida evento) {
+        try {
+            transaccionNueva.executeWithoutResult(status -> {
+                if (eventoRepo.tomar(evento.getId(), LocalDateTime.now()) == 0) {
+                    log.debug("Evento ID: {} ya fue tomado por otro hilo", evento.getId());
+                    return;
+                }
+                aplicar(empresaId, evento);
+            });
+            metricas.contarEvento(evento.getTipo(), "procesado");
+            return true;
+        } catch (Exception e) {
+            int intentos = evento.getIntentos() + 1;
+            boolean agotado = intentos >= maxIntentos;
+            String error = e.getMessage() != null && e.getMessage().length() > 255
+                    ? e.getMessage().substring(0, 255)
+                    : e.getMessage();
+            // Espera creciente: 1x, 2x, 4x... la espera base
+            LocalDateTime proximo = LocalDateTime.now()
+                    .plusSeconds(esperaReintentoSegundos << Math.min(intentos - 1, 10));
+            transaccionNueva.executeWithoutResult(status -> eventoRepo.registrarFallo(evento.getId(),
+                    agotado ? EventoSalida.FALLIDO : EventoSalida.PENDIENTE, error, proximo, LocalDateTime.now()));
+            evento.setIntentos(intentos);
+
+            if (agotado) {
+                log.error("❌ Evento {} ID: {} (factura ID: {}) FALLIDO tras {} intentos: {}", evento.getTipo(),
+                        evento.getId(), evento.getFacturaId(), intentos, e.getMessage(), e);
+                metricas.contarEvento(evento.getTipo(), "fallido");
+                return true;
+            }
+            log.warn("Evento {} ID: {} (factura ID: {}) falló (intento {}), reintento a las {}: {}",
+                    evento.getTipo(), evento.getId(), evento.getFacturaId(), intentos, proximo, e.getMessage());
+            metricas.contarEvento(evento.getTipo(), "reintento");
+            return false;
+        }
+    }
+
+    private void aplicar(Long empresaId, EventoSalida evento) {
+        Factura factura = facturaRepo.findByIdWithDetalle(evento.getFacturaId(), empresaId).orElse(null);
+        if (factura == null) {
+            log.warn("Factura ID: {} del evento ID: {} no existe, nada que aplicar", evento.getFacturaId(),
+                    evento.getId());
+            return;
+        }
+
+        Map<Long, Integer> cantidadesPorProducto = new LinkedHashMap<>();
+        for (FacturaDetalle detalle : factura.getFacturaDetalle()) {
+            cantidadesPorProducto.merge(detalle.getProducto().getId(), detalle.getCantidad(), Integer::sum);
+        }
+        Map<Long, Producto> productos = productoServicio.buscarProductosVenta(cantidadesPorProducto.keySet());
+
+        boolean venta = EventoSalida.VENTA.equals(evento.getTipo());
+        resumenDiarioServicio.registrarVenta(empresaId, evento.getFecha(), factura.getFacturaDetalle(), productos,
+                venta ? 1 : -1);
+        if (venta) {
+            alertarStockBajo(empresaId, productos);
+        }
+        log.debug("Evento {} ID: {} aplicado (factura ID: {})", evento.getTipo(), evento.getId(),
+                evento.getFacturaId());
+    }
+
+    private void alertarStockBajo(Long empresaId, Map<Long, Producto> productos) {
+        List<Long> ingredientes = productos.values().stream()
+                .filter(p -> p.isTieneReceta() && p.getReceta() != null)
+                .flatMap(p -> p.getReceta().getIngredientes().stream())
+                .map(RecetaDetalle::getIngrediente)
+                .map(Ingrediente::getId)
+                .distinct()
+                .toList();
+        if (ingredientes.isEmpty()) {
+            return;
+        }
+        for (Ingrediente ingrediente : ingredienteRepo.findBajoMinimo(empresaId, ingredientes)) {
+            log.warn("⚠️ Stock bajo en ingrediente '{}' (ID: {}): {} {} (mínimo {}), empresa ID: {}",
+                    ingrediente.getNombre(), ingrediente.getId(), ingrediente.getStockActual(),
+                    ingrediente.getUnidadMedida(), ingrediente.getStockMinimo(), empresaId);
+            metricas.contarStockBajo();
+        }
+    }
+}
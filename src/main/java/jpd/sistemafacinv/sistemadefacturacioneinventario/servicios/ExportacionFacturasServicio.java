@@ -0,0 +1,104 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaDetalleRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaExportacionProjection;
+import lombok.AllArgsConstructor;
+
+/**
+ * Exportación de facturas a CSV (una fila por línea de factura). Las filas se
+ * leen con un cursor de BD y se escriben directo en la salida, así que la
+ * memoria usada no depende de cuántas facturas tenga el rango.
+ */
+@Service
+@AllArgsConstructor
+public class ExportacionFacturasServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportacionFacturasServicio.class);
+
+    private static final String ENCABEZADO = "numero_factura,fecha,hora,cliente,estado,forma_pago,"
+            + "producto,cantidad,precio_unitario,subtotal,total_factura";
+
+    // Lo que empieza así Excel/LibreOffice lo toman como fórmula al abrir el archivo
+    private static final String INICIO_FORMULA = "=+-@\t\r";
+
+    private final FacturaDetalleRepositorio facturaDetalleRepo;
+
+    // Devuelve la cantidad de filas escritas (sin contar el encabezado)
+    @Transactional(readOnly = true)
+    public long exportarCsv(LocalDate inicio, LocalDate fin, Writer salida) throws IOException {
+        Long empresaId = TenantContext.getCurrentTenant();
+        log.info("Exportando facturas a CSV para empresa ID: {} desde {} hasta {}", empresaId, inicio, fin);
+
+        salida.write(ENCABEZADO);
+        salida.write("\r\n");
+
+        long filas = 0;
+        try (Stream<FacturaExportacionProjection> stream = facturaDetalleRepo.streamExportacion(empresaId, inicio,
+                fin)) {
+            Iterator<FacturaExportacionProjection> it = stream.iterator();
+            while (it.hasNext()) {
+                FacturaExportacionProjection fila = it.next();
+                salida.write(texto(fila.getNumeroFactura()));
+                salida.write(',');
+                salida.write(fila.getFecha() != null ? fila.getFecha().toString() : "");
+                salida.write(',');
+                salida.write(fila.getHora() != null ? fila.getHora().withNano(0).toString() : "");
+                salida.write(',');
+                salida.write(texto(fila.getCliente() != null ? fila.getCliente() : "Consumidor Final"));
+                salida.write(',');
+                salida.write(texto(fila.getEstado()));
+                salida.write(',');
+                salida.write(texto(fila.getFormaPago()));
+                salida.write(',');
+                salida.write(texto(fila.getProducto()));
+                salida.write(',');
+                salida.write(fila.getCantidad() != null ? fila.getCantidad().toString() : "");
+                salida.write(',');
+                salida.write(numero(fila.getPrecioUnitario()));
+                salida.write(',');
+                salida.write(numero(fila.getSubtotal()));
+                salida.write(',');
+                salida.write(numero(fila.getTotalFactura()));
+                salida.write("\r\n");
+                filas++;
+            }
+        }
+        salida.flush();
+
+        log.info("Exportación CSV terminada para empresa ID: {}. Filas: {}", empresaId, filas);
+        return filas;
+    }
+
+    // Comillas solo cuando hacen falta (RFC 4180). Nombres que parecen fórmula (inyección CSV)
+    // van con ' delante y entre comillas, para que la hoja los muestre como texto
+    private String texto(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (!valor.isEmpty() && INICIO_FORMULA.indexOf(valor.charAt(0)) >= 0) {
+            return "\"'" + valor.replace("\"", "\"\"") + '"';
+        }
+        if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0
+                || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+
+    private String numero(Double valor) {
+        return valor != null ? BigDecimal.valueOf(valor).toPlainString() : "";
+    }
+}
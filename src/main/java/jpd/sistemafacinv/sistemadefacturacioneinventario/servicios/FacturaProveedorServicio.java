@@ -32,8 +32,16 @@ public class FacturaProveedorServicio {
     private final ProveedorRepositorio proveedorRepo;
     private final IngredienteRepositorio ingredienteRepo;
     private final EmpresaRepositorio empresaRepo;
+    private final SecuenciaServicio secuenciaServicio;
+    private final StockPosibleCache stockPosibleCache;
+    private final ResumenDiarioServicio resumenDiarioServicio;
+    private final MetricasNegocio metricas;
 
     public FacturaProveedor crearFacturaProveedor(FacturaProveedor factura) {
+        return metricas.medir(MetricasNegocio.COMPRAS, "crear", () -> registrarFacturaProveedor(factura));
+    }
+
+    private FacturaProveedor registrarFacturaProveedor(FacturaProveedor factura) {
         Long empresaId = TenantContext.getCurrentTenant();
         log.info("Creando factura de proveedor para empresa ID: {}", empresaId);
 
@@ -114,15 +122,16 @@ public class FacturaProveedorServicio {
                      ingrediente.getNombre(), detalle.getCantidad(), 
                      detalle.getPrecioUnitario(), detalle.getSubtotal());
 
-            // Aumentar stock
-            double stockAnterior = ingrediente.getStockActual();
-            ingrediente.setStockActual(stockAnterior + detalle.getCantidad());
-            ingredienteRepo.save(ingrediente);
+            // Aumentar stock (incremento atómico, no pisa ventas concurrentes)
+            ingredienteRepo.aumentarStock(ingrediente.getId(), empresaId, detalle.getCantidad());
             
-            log.debug("Stock actualizado para ingrediente '{}': Anterior: {}, Nuevo: {}, Aumento: {}", 
-                     ingrediente.getNombre(), stockAnterior, ingrediente.getStockActual(), detalle.getCantidad());
+            log.debug("Stock aumentado para ingrediente '{}': Aumento: {}", 
+                     ingrediente.getNombre(), detalle.getCantidad());
         }
 
+        stockPosibleCache.invalidarIngredientes(empresaId, factura.getDetalles().stream()
+                .map(detalle -> detalle.getIngrediente().getId()).toList());
+
         // 6. CALCULAR TOTALES
         double iva = subtotal * 0.19;
         double total = subtotal + iva;
@@ -144,15 +153,21 @@ public class FacturaProveedorServicio {
 
         // 8. GUARDAR (esto guardará factura y detalles por cascade)
         FacturaProveedor facturaCreada = facturaRepo.save(factura);
+        resumenDiarioServicio.registrarCompra(empresaId, facturaCreada.getFecha(), facturaCreada.getDetalles(), 1);
         log.info("Factura de proveedor creada exitosamente: {} (ID: {}) para empresa ID: {}. Total: {}, Detalles: {}", 
                 facturaCreada.getNumeroFactura(), facturaCreada.getId(), empresaId, 
                 facturaCreada.getTotal(), totalDetalles);
-        
+        metricas.registrarLineas(MetricasNegocio.LINEAS_COMPRA, totalDetalles);
+
         return facturaCreada;
     }
 
     // Anular factura de proveedor
     public void anularFacturaProveedor(Long id) {
+        metricas.medir(MetricasNegocio.COMPRAS, "anular", () -> procesarAnulacion(id));
+    }
+
+    private void procesarAnulacion(Long id) {
         Long empresaId = TenantContext.getCurrentTenant();
         log.info("Anulando factura de proveedor ID: {} para empresa ID: {}", id, empresaId);
 
@@ -174,22 +189,20 @@ public class FacturaProveedorServicio {
                         return new RuntimeException("Ingrediente no encontrado");
                     });
 
-            // Validar que haya suficiente stock para disminuir
-            if (ingrediente.getStockActual() < detalle.getCantidad()) {
-                log.error("Stock insuficiente para anular. Ingrediente: '{}', Stock actual: {}, Cantidad requerida: {}", 
-                         ingrediente.getNombre(), ingrediente.getStockActual(), detalle.getCantidad());
+            // Disminuir stock solo si alcanza (descuento condicional atómico)
+            if (ingredienteRepo.descontarStockSiDisponible(ingrediente.getId(), empresaId, detalle.getCantidad()) == 0) {
+                log.error("Stock insuficiente para anular. Ingrediente: '{}', Cantidad requerida: {}", 
+                         ingrediente.getNombre(), detalle.getCantidad());
                 throw new RuntimeException("Stock insuficiente para anular. Ingrediente: " + ingrediente.getNombre());
             }
-
-            // Disminuir stock
-            double stockAnterior = ingrediente.getStockActual();
-            ingrediente.setStockActual(stockAnterior - detalle.getCantidad());
-            ingredienteRepo.save(ingrediente);
             
-            log.debug("Stock disminuido para ingrediente '{}': Anterior: {}, Nuevo: {}, Disminución: {}", 
-                     ingrediente.getNombre(), stockAnterior, ingrediente.getStockActual(), detalle.getCantidad());
+            log.debug("Stock disminuido para ingrediente '{}': Disminución: {}", 
+                     ingrediente.getNombre(), detalle.getCantidad());
         }
 
+        stockPosibleCache.invalidarIngredientes(empresaId, factura.getDetalles().stream()
+                .map(detalle -> detalle.getIngrediente().getId()).toList());
+
         // Poner totales a 0
         factura.setSubtotal(0.0);
         factura.setIva(0.0);
@@ -197,6 +210,7 @@ public class FacturaProveedorServicio {
         factura.setEstado("ANULADA");
 
         FacturaProveedor facturaAnulada = facturaRepo.save(factura);
+        resumenDiarioServicio.registrarCompra(empresaId, factura.getFecha(), factura.getDetalles(), -1);
         log.info("Factura de proveedor anulada exitosamente: {} (ID: {}) para empresa ID: {}", 
                 facturaAnulada.getNumeroFactura(), id, empresaId);
     }
@@ -225,7 +239,8 @@ public class FacturaProveedorServicio {
 
     private String generarNumeroFactura() {
         Long empresaId = TenantContext.getCurrentTenant();
-        Long consecutivo = facturaRepo.countByEmpresaId(empresaId) + 1;
+        long consecutivo = secuenciaServicio.siguienteValor(empresaId, SecuenciaServicio.FACTURA_PROVEEDOR,
+                () -> facturaRepo.countByEmpresaId(empresaId));
         String numeroFactura = String.format("FAC-PROV-%03d-%d", consecutivo, LocalDate.now().getYear());
         log.debug("Consecutivo generado: {} para empresa ID: {}", consecutivo, empresaId);
         return numeroFactura;
@@ -1,7 +1,9 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,20 +17,19 @@ import org.springframework.stereotype.Service;
 
 import jakarta.transaction.Transactional;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Cliente;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.EventoSalida;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaDetalle;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Receta;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.RecetaDetalle;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.CierreInventarioDiarioRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.FacturaListadoDTO;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.PaginaFacturasDTO;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.VentaHoyDTO;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ClienteRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ProductoRepositorio;
 import lombok.AllArgsConstructor;
 
 @Service
@@ -41,11 +42,16 @@ public class FacturaServicio {
     private final FacturaRepositorio facturaRepo;
     private final ClienteRepositorio clienteRepo;
     private final ProductoServicio productoServicio;
-    private final ProductoRepositorio productoRepo;
-    private final IngredienteServicio ingredienteServicio;
-    private final CierreInventarioDiarioRepositorio cierreRepo;
+    private final CierreEstadoCache cierreEstadoCache;
+    private final SecuenciaServicio secuenciaServicio;
+    private final EventoSalidaServicio eventoSalidaServicio;
+    private final MetricasNegocio metricas;
 
     public Factura crearFactura(Factura factura) {
+        return metricas.medir(MetricasNegocio.FACTURAS, "crear", () -> registrarFactura(factura));
+    }
+
+    private Factura registrarFactura(Factura factura) {
         LocalDate hoy = LocalDate.now();
         LocalDate ayer = hoy.minusDays(1);
         long empresaId = TenantContext.getCurrentTenant();
@@ -53,7 +59,7 @@ public class FacturaServicio {
         log.info("Creando nueva factura para empresa ID: {}, Fecha: {}", empresaId, hoy);
 
         // Verificar si día anterior está cerrado
-        boolean diaAnteriorCerrado = cierreRepo.existeCierrePorFechaYEstadoYEmpresaId(ayer, "COMPLETADO", empresaId);
+        boolean diaAnteriorCerrado = cierreEstadoCache.diaCerrado(empresaId, ayer);
 
         if (!diaAnteriorCerrado) {
             log.error("Intento de crear factura sin cierre del día anterior. Empresa ID: {}, Fecha ayer: {}",
@@ -79,54 +85,27 @@ public class FacturaServicio {
             log.debug("Cliente asignado: {} (ID: {})", cliente.getNombre(), cliente.getId());
         }
 
-        // Asignar número de factura si no tiene
-        if (factura.getNumeroFactura() == null || factura.getNumeroFactura().isEmpty()) {
-            String numeroFactura = generarNumeroFactura(empresaId);
-            factura.setNumeroFactura(numeroFactura);
-            log.debug("Número de factura generado: {}", numeroFactura);
-        } else {
-            log.debug("Usando número de factura proporcionado: {}", factura.getNumeroFactura());
-        }
-
         // Validar stock y preparar detalles
         double totalFactura = 0;
         int totalDetalles = factura.getFacturaDetalle().size();
         log.debug("Procesando {} detalles de factura", totalDetalles);
 
+        // Demanda total por producto (un producto puede venir en varias líneas)
+        Map<Long, Integer> cantidadesPorProducto = new LinkedHashMap<>();
         for (FacturaDetalle detalle : factura.getFacturaDetalle()) {
-            // Obtener producto actualizado
-            Producto producto = productoServicio.buscarProducto(detalle.getProducto().getId());
-            log.trace("Procesando producto: '{}' (ID: {}), Cantidad: {}",
-                    producto.getNombre(), producto.getId(), detalle.getCantidad());
-
-            // ✅ REEMPLAZA CON ESTA VALIDACIÓN SIMPLE (sin descontar):
-            if (producto.isTieneReceta()) {
-
-                int stockPosible = productoServicio.calcularStockPosible(producto.getId());
-
-                log.debug("Stock posible calculado para '{}': {}",
-                        producto.getNombre(), stockPosible);
-
-                if (detalle.getCantidad() > stockPosible) {
-                    log.error("Stock insuficiente por receta para '{}'. Stock posible: {}, Cantidad solicitada: {}",
-                            producto.getNombre(), stockPosible, detalle.getCantidad());
-
-                    throw new RuntimeException(
-                            "Stock insuficiente para: " + producto.getNombre());
-                }
-
-            } else {
+            cantidadesPorProducto.merge(detalle.getProducto().getId(), detalle.getCantidad(), Integer::sum);
+        }
 
-                if (producto.getStock() < detalle.getCantidad()) {
-                    log.error("Stock insuficiente para producto '{}'. Stock: {}, Cantidad: {}",
-                            producto.getNombre(), producto.getStock(), detalle.getCantidad());
+        // Una sola consulta para productos, recetas e ingredientes
+        Map<Long, Producto> productos = productoServicio.buscarProductosVenta(cantidadesPorProducto.keySet());
 
-                    throw new RuntimeException(
-                            "Stock insuficiente para: " + producto.getNombre());
-                }
-            }
+        // Validar y descontar el stock agregado de toda la factura
+        productoServicio.descontarStockVenta(productos, cantidadesPorProducto);
+        log.debug("Stock validado y descontado para {} productos", productos.size());
 
-            log.debug("Stock validado exitosamente para producto: '{}'", producto.getNombre());
+        for (FacturaDetalle detalle : factura.getFacturaDetalle()) {
+            Producto producto = productos.get(detalle.getProducto().getId());
+            detalle.setProducto(producto);
 
             // Asignar precio unitario desde producto
             detalle.setPrecioUnitario(producto.getPrecioVenta());
@@ -141,6 +120,15 @@ public class FacturaServicio {
                     producto.getNombre(), detalle.getCantidad(), detalle.getPrecioUnitario(), subtotalDetalle);
         }
 
+        // Asignar número de factura si no tiene (al final: la fila de la secuencia queda bloqueada hasta el commit)
+        if (factura.getNumeroFactura() == null || factura.getNumeroFactura().isEmpty()) {
+            String numeroFactura = generarNumeroFactura(empresaId);
+            factura.setNumeroFactura(numeroFactura);
+            log.debug("Número de factura generado: {}", numeroFactura);
+        } else {
+            log.debug("Usando número de factura proporcionado: {}", factura.getNumeroFactura());
+        }
+
         // Calcular totales
         double base = totalFactura / 1.19;
         double iva = base * 0.19;
@@ -156,26 +144,16 @@ public class FacturaServicio {
 
         // Guardar la factura (se ejecutará @PrePersist de FacturaDetalle)
         Factura facturaCreada = facturaRepo.save(factura);
+        // Resumen diario y alertas de stock: en segundo plano tras el commit
+        eventoSalidaServicio.registrar(EventoSalida.VENTA, facturaCreada);
 
         log.info("Factura guardada: {} (ID: {})",
                 facturaCreada.getNumeroFactura(), facturaCreada.getId());
 
-        // ✅ AHORA SÍ DESCONTAMOS STOCK - SOLO UNA VEZ
-        for (FacturaDetalle detalle : facturaCreada.getFacturaDetalle()) {
-            log.debug("Descontando stock final para producto ID: {}, Cantidad: {}",
-                    detalle.getProducto().getId(), detalle.getCantidad());
-
-            if (!productoServicio.descontarStock(detalle.getProducto().getId(), detalle.getCantidad())) {
-                // Esto no debería pasar porque ya validamos, pero por seguridad
-                log.error("ERROR CRÍTICO: Stock insuficiente después de guardar factura");
-                // Puedes revertir la factura o lanzar excepción
-                throw new RuntimeException("Error en descuento de stock para: " + detalle.getProducto().getNombre());
-            }
-        }
-
         log.info("Factura creada exitosamente: {} (ID: {}) para empresa ID: {}. Total: {}, Detalles: {}",
                 facturaCreada.getNumeroFactura(), facturaCreada.getId(), empresaId,
                 facturaCreada.getTotal(), totalDetalles);
+        metricas.registrarLineas(MetricasNegocio.LINEAS_FACTURA, totalDetalles);
 
         return facturaCreada;
     }
@@ -202,6 +180,10 @@ public class FacturaServicio {
     }
 
     public void anularFactura(long id) {
+        metricas.medir(MetricasNegocio.FACTURAS, "anular", () -> procesarAnulacion(id));
+    }
+
+    private void procesarAnulacion(long id) {
         long empresa_id = TenantContext.getCurrentTenant();
         log.info("Anulando factura ID: {} para empresa ID: {}", id, empresa_id);
 
@@ -213,25 +195,14 @@ public class FacturaServicio {
         }
 
         log.debug("Reintegrando stock para {} detalles de factura", factura.getFacturaDetalle().size());
-        // Reintegrar stock
+        // Reintegrar stock agregado por producto con incrementos atómicos
+        Map<Long, Integer> cantidadesPorProducto = new LinkedHashMap<>();
         for (FacturaDetalle detalle : factura.getFacturaDetalle()) {
-            // Obtener producto fresco de la BD
-            Producto producto = productoServicio.buscarProducto(detalle.getProducto().getId());
-            log.trace("Reintegrando producto: '{}' (ID: {}), Cantidad: {}",
-                    producto.getNombre(), producto.getId(), detalle.getCantidad());
-
-            if (producto.isTieneReceta()) {
-                // Reintegrar ingredientes (lógica inversa)
-                reintegrarStockReceta(producto.getReceta(), detalle.getCantidad());
-                log.debug("Stock de receta reintegrado para producto: '{}'", producto.getNombre());
-            } else {
-                double stockAnterior = producto.getStock();
-                producto.setStock(stockAnterior + detalle.getCantidad());
-                productoRepo.save(producto);
-                log.debug("Stock directo reintegrado para producto '{}': Anterior: {}, Nuevo: {}, Cantidad: {}",
-                        producto.getNombre(), stockAnterior, producto.getStock(), detalle.getCantidad());
-            }
+            cantidadesPorProducto.merge(detalle.getProducto().getId(), detalle.getCantidad(), Integer::sum);
         }
+        Map<Long, Producto> productos = productoServicio.buscarProductosVenta(cantidadesPorProducto.keySet());
+        productoServicio.reintegrarStockVenta(productos, cantidadesPorProducto);
+        eventoSalidaServicio.registrar(EventoSalida.ANULACION, factura);
 
         factura.setEstado("ANULADA");
         factura.setSubtotal(0);
@@ -266,49 +237,36 @@ public class FacturaServicio {
     }
 
     private String generarNumeroFactura(long empresaId) {
-        Long consecutivo = facturaRepo.countByEmpresaId(empresaId) + 1;
+        long consecutivo = secuenciaServicio.siguienteValor(empresaId, SecuenciaServicio.FACTURA,
+                () -> facturaRepo.countByEmpresaId(empresaId));
         String numeroFactura = String.format("FAC-%03d-%d", consecutivo, LocalDate.now().getYear());
         log.debug("Consecutivo generado: {} para empresa ID: {}", consecutivo, empresaId);
         return numeroFactura;
     }
 
-    private void reintegrarStockReceta(Receta receta, int cantidad) {
-        log.debug("Reintegrando stock de receta '{}' para {} unidades", receta.getNombre(), cantidad);
-
-        for (RecetaDetalle detalle : receta.getIngredientes()) {
-            double cantidadReintegrar = detalle.getCantidadIngrediente() * cantidad;
-            log.trace("Reintegrando ingrediente: '{}', Cantidad: {}",
-                    detalle.getIngrediente().getNombre(), cantidadReintegrar);
-
-            // Usar método que incremente stock
-            ingredienteServicio.aumentarStock(
-                    detalle.getIngrediente().getId(),
-                    cantidadReintegrar);
-        }
-
-        log.debug("Stock de receta reintegrado para {} ingredientes", receta.getIngredientes().size());
-    }
-
     public Map<String, Object> obtenerResumenVentasHoy() {
         Long empresaId = TenantContext.getCurrentTenant();
         log.debug("Obteniendo resumen de ventas hoy para empresa ID: {}", empresaId);
 
-        // Usar métodos con filtro empresa
-        List<Factura> facturasHoy = facturaRepo.findFacturasHoy(empresaId);
-        Double totalHoy = facturaRepo.getTotalVentasHoy(empresaId);
+        // Una sola consulta de filas livianas: la cantidad y el total salen del mismo resultado
+        List<VentaHoyDTO> ventasHoy = facturaRepo.findVentasDelDia(empresaId, LocalDate.now(), "PAGADA");
+        double totalHoy = 0;
+        for (VentaHoyDTO venta : ventasHoy) {
+            totalHoy += venta.getTotal();
+        }
 
         Map<String, Object> resumen = new HashMap<>();
-        resumen.put("cantidadFacturas", facturasHoy.size());
-        resumen.put("totalVentas", totalHoy != null ? totalHoy : 0.0);
-        resumen.put("facturas", facturasHoy);
+        resumen.put("cantidadFacturas", ventasHoy.size());
+        resumen.put("totalVentas", totalHoy);
+        resumen.put("facturas", ventasHoy);
 
-        log.info("Resumen de ventas hoy - Empresa ID: {}, Facturas: {}, Total: {}",
-                empresaId, facturasHoy.size(), resumen.get("totalVentas"));
+        log.debug("Resumen de ventas hoy - Empresa ID: {}, Facturas: {}, Total: {}",
+                empresaId, ventasHoy.size(), totalHoy);
 
         return resumen;
     }
 
-    public Page<Factura> obtenerFacturasPaginadas(
+    public Page<FacturaListadoDTO> obtenerFacturasPaginadas(
             int pagina,
             int tamanio,
             String estado,
@@ -327,4 +285,58 @@ public class FacturaServicio {
                 empresaId, estado, fechaInicio, fechaFin, pageable);
     }
 
-}
\ No newline at end of file
+    // Listado por cursor: no usa OFFSET ni cuenta todas las filas en cada página
+    public PaginaFacturasDTO obtenerPaginaFacturas(
+            String cursor,
+            int tamanio,
+            String estado,
+            LocalDate fechaInicio,
+            LocalDate fechaFin,
+            boolean contarExacto) {
+
+        long empresaId = TenantContext.getCurrentTenant();
+        int limite = Math.max(1, Math.min(tamanio, 100));
+        log.debug("Obteniendo página de facturas para empresa ID: {}, cursor: {}, tamaño: {}", empresaId, cursor,
+                limite);
+
+        LocalDate cursorFecha = null;
+        Integer cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                int separador = cursor.indexOf(':');
+                cursorFecha = LocalDate.parse(cursor.substring(0, separador));
+                cursorId = Integer.valueOf(cursor.substring(separador + 1));
+            } catch (RuntimeException e) {
+                log.warn("Cursor de facturas inválido '{}', se muestra la primera página", cursor);
+                cursorFecha = null;
+                cursorId = null;
+            }
+        }
+
+        // Una fila de más indica si existe página siguiente
+        List<FacturaListadoDTO> facturas = new ArrayList<>(facturaRepo.buscarPagina(empresaId, estado, fechaInicio, fechaFin,
+                cursorFecha, cursorId, limite + 1));
+        String siguienteCursor = null;
+        if (facturas.size() > limite) {
+            facturas = facturas.subList(0, limite);
+            FacturaListadoDTO ultima = facturas.get(limite - 1);
+            siguienteCursor = ultima.getFecha() + ":" + ultima.getId();
+        }
+
+        Long total = null;
+        boolean aproximado = false;
+        boolean sinFiltros = (estado == null || estado.isBlank()) && fechaInicio == null && fechaFin == null;
+        if (contarExacto) {
+            total = facturaRepo.contarConFiltros(empresaId, estado, fechaInicio, fechaFin);
+        } else if (sinFiltros) {
+            // Números emitidos según la secuencia: incluye anuladas, pero evita el COUNT(*)
+            total = secuenciaServicio.ultimoValorReservado(empresaId, SecuenciaServicio.FACTURA);
+            aproximado = total != null;
+            if (total == null) {
+                total = facturaRepo.countByEmpresaId(empresaId);
+            }
+        }
+
+        return new PaginaFacturasDTO(facturas, siguienteCursor, total, aproximado);
+    }
+}
@@ -21,6 +21,7 @@ public class IngredienteServicio {
     private static final Logger log = LoggerFactory.getLogger(IngredienteServicio.class);
 
     private final IngredienteRepositorio repositorio;
+    private final StockPosibleCache stockPosibleCache;
 
     public Ingrediente crearIngrediente(Ingrediente ingrediente) {
         long empresaId = TenantContext.getCurrentTenant();
@@ -48,6 +49,7 @@ public class IngredienteServicio {
         ingrediente.setEmpresa(empresa);
 
         Ingrediente ingredienteGuardado = repositorio.save(ingrediente);
+        stockPosibleCache.invalidarIngredientes(empresaId, List.of(ingredienteGuardado.getId()));
         log.info("Ingrediente guardado exitosamente: '{}' (ID: {})", ingredienteGuardado.getNombre(),
                 ingredienteGuardado.getId());
         return ingredienteGuardado;
@@ -90,6 +92,7 @@ public class IngredienteServicio {
         ingrediente.setUnidadMedida(ingredienteActualizado.getUnidadMedida());
 
         Ingrediente ingredienteActualizadoObj = repositorio.save(ingrediente);
+        stockPosibleCache.invalidarIngredientes(ingrediente.getEmpresa().getId(), List.of(id));
         log.info("Ingrediente actualizado exitosamente: '{}' (ID: {})",
                 ingredienteActualizadoObj.getNombre(), id);
 
@@ -101,34 +104,28 @@ public class IngredienteServicio {
 
         Ingrediente ingrediente = buscarIngrediente(id);
         repositorio.delete(ingrediente);
+        stockPosibleCache.invalidarEmpresa(ingrediente.getEmpresa().getId());
 
         log.info("Ingrediente eliminado: '{}' (ID: {})", ingrediente.getNombre(), id);
     }
 
     public void actualizarStock(long idIngrediente, double cantidad) {
+        long empresaId = TenantContext.getCurrentTenant();
         log.debug("Actualizando stock para ingrediente ID: {}, Cantidad: {}", idIngrediente, cantidad);
 
-        Ingrediente ing = buscarIngrediente(idIngrediente);
-        double stockAnterior = ing.getStockActual();
-        double nuevoStock = stockAnterior + cantidad;
+        // Incremento atómico en BD: no pisa descuentos de ventas concurrentes
+        if (repositorio.aumentarStock(idIngrediente, empresaId, cantidad) == 0) {
+            log.error("Ingrediente no encontrado ID: {} para empresa ID: {}", idIngrediente, empresaId);
+            throw new RuntimeException("Ingrediente no encontrado o no pertenece a la empresa");
+        }
 
-        ing.setStockActual(nuevoStock);
-        repositorio.save(ing);
+        stockPosibleCache.invalidarIngredientes(empresaId, List.of(idIngrediente));
 
-        log.info("Stock actualizado para ingrediente '{}' (ID: {}). Anterior: {}, Nuevo: {}, Cambio: {}",
-                ing.getNombre(), idIngrediente, stockAnterior, nuevoStock, cantidad);
+        log.info("Stock actualizado para ingrediente ID: {}. Cambio: {}", idIngrediente, cantidad);
     }
 
     public void aumentarStock(long idIngrediente, double cantidad) {
         log.debug("Aumentando stock para ingrediente ID: {}, Cantidad: {}", idIngrediente, cantidad);
-
-        Ingrediente ingrediente = buscarIngrediente(idIngrediente);
-        double stockAnterior = ingrediente.getStockActual();
-
-        ingrediente.setStockActual(stockAnterior + cantidad);
-        repositorio.save(ingrediente);
-
-        log.info("Stock aumentado para ingrediente '{}' (ID: {}). Anterior: {}, Nuevo: {}, Aumento: {}",
-                ingrediente.getNombre(), idIngrediente, stockAnterior, ingrediente.getStockActual(), cantidad);
+        actualizarStock(idIngrediente, cantidad);
     }
 }
\ No newline at end of file
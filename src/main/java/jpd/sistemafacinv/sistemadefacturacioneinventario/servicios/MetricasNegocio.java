@@ -0,0 +1,97 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Métricas de negocio (Micrometer) etiquetadas por empresa y operación:
+ * latencia de facturas y compras, duración de cierres y reportes, líneas
+ * por factura y rechazos de stock. Se publican en /actuator/prometheus.
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricasNegocio {
+
+    public static final String FACTURAS = "facturacion.facturas";
+    public static final String LINEAS_FACTURA = "facturacion.factura.lineas";
+    public static final String COMPRAS = "compras.facturas";
+    public static final String LINEAS_COMPRA = "compras.factura.lineas";
+    public static final String CIERRES = "inventario.cierres";
+    public static final String REPORTES_CONSUMO = "reportes.consumo";
+    public static final String RECHAZOS_STOCK = "inventario.stock.rechazos";
+    public static final String STOCK_BAJO = "inventario.stock.bajo-minimo";
+    public static final String EVENTOS = "eventos.salida";
+
+    private final MeterRegistry registry;
+
+    // Mide la acción; dentro de una transacción el tiempo incluye el commit y
+    // el resultado (ok/error) es el de la transacción, no solo el del método
+    public <T> T medir(String metrica, String operacion, Supplier<T> accion) {
+        String empresa = empresaActual();
+        Timer.Sample muestra = Timer.start(registry);
+        T resultado;
+        try {
+            resultado = accion.get();
+        } catch (RuntimeException | Error e) {
+            detener(muestra, metrica, empresa, operacion, false);
+            throw e;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    detener(muestra, metrica, empresa, operacion, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            detener(muestra, metrica, empresa, operacion, true);
+        }
+        return resultado;
+    }
+
+    public void medir(String metrica, String operacion, Runnable accion) {
+        medir(metrica, operacion, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    public void registrarLineas(String metrica, int lineas) {
+        registry.summary(metrica, "empresa", empresaActual()).record(lineas);
+    }
+
+    // tipo: ingrediente | producto; motivo: validacion (stock leído) | concurrencia (UPDATE sin filas)
+    public void contarRechazoStock(String tipo, String motivo) {
+        registry.counter(RECHAZOS_STOCK, "empresa", empresaActual(), "tipo", tipo, "motivo", motivo).increment();
+    }
+
+    public void contarStockBajo() {
+        registry.counter(STOCK_BAJO, "empresa", empresaActual()).increment();
+    }
+
+    // tipo: VENTA | ANULACION; resultado: procesado | reintento | fallido
+    public void contarEvento(String tipo, String resultado) {
+        registry.counter(EVENTOS, "empresa", empresaActual(), "tipo", tipo, "resultado", resultado).increment();
+    }
+
+    private void detener(Timer.Sample muestra, String metrica, String empresa, String operacion, boolean exito) {
+        muestra.stop(registry.timer(metrica,
+                "empresa", empresa,
+                "operacion", operacion,
+                "resultado", exito ? "ok" : "error"));
+    }
+
+    private String empresaActual() {
+        Long empresaId = TenantContext.getCurrentTenant();
+        return empresaId != null ? empresaId.toString() : "ninguna";
+    }
+}
@@ -1,6 +1,10 @@
 package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +32,8 @@ public class ProductoServicio {
     private final ProductoRepositorio productoRepo;
     private final RecetaRepositorio recetaRepo;
     private final IngredienteRepositorio ingredienteRepo;
+    private final StockPosibleCache stockPosibleCache;
+    private final MetricasNegocio metricas;
 
     public Producto crearProducto(Producto producto) {
         Long empresaId = TenantContext.getCurrentTenant();
@@ -65,6 +71,7 @@ public class ProductoServicio {
         }
 
         Producto productoCreado = productoRepo.save(producto);
+        stockPosibleCache.invalidarEmpresa(empresaId);
         log.info("Producto creado exitosamente: '{}' (ID: {}) para empresa ID: {}",
                 productoCreado.getNombre(), productoCreado.getId(), empresaId);
 
@@ -81,6 +88,13 @@ public class ProductoServicio {
         return productos;
     }
 
+    // Listado de productos: con la receta ya cargada para mostrar su nombre
+    public List<Producto> listarProductosConReceta() {
+        Long empresaId = TenantContext.getCurrentTenant();
+        log.debug("Listando productos con receta para empresa ID: {}", empresaId);
+        return productoRepo.findConRecetaByEmpresaId(empresaId);
+    }
+
     public Producto buscarProducto(long id) {
         Long empresaId = TenantContext.getCurrentTenant();
         log.debug("Buscando producto ID: {} para empresa ID: {}", id, empresaId);
@@ -132,6 +146,7 @@ public class ProductoServicio {
         }
 
         Producto productoActualizadoObj = productoRepo.save(producto);
+        stockPosibleCache.invalidarEmpresa(empresaId);
         log.info("Producto actualizado exitosamente: '{}' (ID: {}) para empresa ID: {}",
                 productoActualizadoObj.getNombre(), id, empresaId);
 
@@ -143,100 +158,169 @@ public class ProductoServicio {
 
         Producto producto = buscarProducto(id);
         productoRepo.delete(producto);
+        stockPosibleCache.invalidarEmpresa(TenantContext.getCurrentTenant());
 
         log.info("Producto eliminado: '{}' (ID: {})", producto.getNombre(), id);
     }
 
-    // Método para descontar stock cuando se vende
+    // Método para descontar stock cuando se vende (lanza excepción si no alcanza)
     public boolean descontarStock(long idProducto, int cantidad) {
         log.debug("Descontando stock - Producto ID: {}, Cantidad: {}", idProducto, cantidad);
 
-        Producto producto = buscarProducto(idProducto);
-
-        if (producto.isTieneReceta()) {
-            log.debug("Descontando ingredientes de receta para producto '{}'", producto.getNombre());
-            // Descontar ingredientes de la receta
-            return descontarIngredientesReceta(producto.getReceta(), cantidad);
-        } else {
-            log.debug("Descontando stock directo para producto '{}'", producto.getNombre());
-            // Descontar stock directo
-            if (producto.getStock() >= cantidad) {
-                producto.setStock(producto.getStock() - cantidad);
-                productoRepo.save(producto);
-                log.info("Stock descontado exitosamente. Producto: '{}', Cantidad: {}, Stock restante: {}",
-                        producto.getNombre(), cantidad, producto.getStock());
-                return true;
-            }
-            log.warn("Stock insuficiente. Producto: '{}', Stock actual: {}, Cantidad requerida: {}",
-                    producto.getNombre(), producto.getStock(), cantidad);
-            return false;
-        }
+        Map<Long, Producto> productos = buscarProductosVenta(List.of(idProducto));
+        descontarStockVenta(productos, Map.of(idProducto, cantidad));
+        return true;
     }
 
     public int calcularStockPosible(long productoId) {
         log.debug("Calculando stock posible para producto ID: {}", productoId);
+        return calcularStockPosible(List.of(buscarProducto(productoId))).getOrDefault(productoId, 0);
+    }
 
-        Producto producto = buscarProducto(productoId);
+    // Stock posible de todos los productos con receta de la lista (desde caché; los faltantes en una consulta)
+    public Map<Long, Integer> calcularStockPosible(List<Producto> productos) {
+        Long empresaId = TenantContext.getCurrentTenant();
 
-        if (!producto.isTieneReceta() || producto.getReceta() == null) {
-            log.debug("Producto sin receta o receta nula, stock posible: 0");
-            return 0; // Productos sin receta no tienen "stock posible"
+        List<Long> idsConReceta = productos.stream()
+                .filter(Producto::isTieneReceta)
+                .map(Producto::getId)
+                .toList();
+        if (idsConReceta.isEmpty()) {
+            return new HashMap<>();
         }
 
-        Receta receta = producto.getReceta();
-        int maximoPosible = Integer.MAX_VALUE;
-
-        log.debug("Calculando stock posible basado en {} ingredientes", receta.getIngredientes().size());
-        for (RecetaDetalle detalle : receta.getIngredientes()) {
-            Ingrediente ingrediente = detalle.getIngrediente();
-            double cantidadPorUnidad = detalle.getCantidadIngrediente();
-            double stockDisponible = ingrediente.getStockActual();
+        Map<Long, Integer> stockPosible = stockPosibleCache.obtener(empresaId, idsConReceta);
+        log.debug("Stock posible obtenido para {} productos con receta, empresa ID: {}",
+                stockPosible.size(), empresaId);
+        return stockPosible;
+    }
 
-            int maxPorIngrediente = (int) (stockDisponible / cantidadPorUnidad);
-            maximoPosible = Math.min(maximoPosible, maxPorIngrediente);
+    // Carga en una sola consulta todos los productos de una venta (con receta e ingredientes)
+    public Map<Long, Producto> buscarProductosVenta(Collection<Long> ids) {
+        Long empresaId = TenantContext.getCurrentTenant();
+        log.debug("Buscando {} productos de venta para empresa ID: {}", ids.size(), empresaId);
 
-            log.trace("Ingrediente: '{}' - Stock: {}, Por unidad: {}, Máx posible: {}",
-                    ingrediente.getNombre(), stockDisponible, cantidadPorUnidad, maxPorIngrediente);
+        Map<Long, Producto> productos = new HashMap<>();
+        for (Producto producto : productoRepo.findByIdInAndEmpresaIdWithReceta(ids, empresaId)) {
+            productos.put(producto.getId(), producto);
         }
 
-        int resultado = maximoPosible == Integer.MAX_VALUE ? 0 : maximoPosible;
-        log.debug("Stock posible calculado para producto '{}': {}", producto.getNombre(), resultado);
+        for (Long id : ids) {
+            if (!productos.containsKey(id)) {
+                log.error("Producto no encontrado ID: {} para empresa ID: {}", id, empresaId);
+                throw new RuntimeException("Producto no encontrado");
+            }
+        }
 
-        return resultado;
+        return productos;
     }
 
-    private boolean descontarIngredientesReceta(Receta receta, int cantidad) {
-        log.debug("Descontando ingredientes de receta '{}', cantidad: {}", receta.getNombre(), cantidad);
+    // Descuenta el stock de una venta completa: agrega la demanda por ingrediente y
+    // por producto, valida y descuenta con un UPDATE condicional por fila
+    public void descontarStockVenta(Map<Long, Producto> productos, Map<Long, Integer> cantidadesPorProducto) {
+        Long empresaId = TenantContext.getCurrentTenant();
 
-        // Primero validar que hay suficiente stock
-        for (RecetaDetalle detalle : receta.getIngredientes()) {
-            Ingrediente ing = detalle.getIngrediente();
-            double cantidadNecesaria = detalle.getCantidadIngrediente() * cantidad;
+        // TreeMap: las filas se bloquean siempre en orden de ID, así dos cajas que
+        // venden los mismos ingredientes no se bloquean mutuamente (deadlock)
+        Map<Long, Double> demandaIngredientes = new TreeMap<>();
+        Map<Long, Ingrediente> ingredientes = new HashMap<>();
+        Map<Long, Double> demandaProductos = new TreeMap<>();
+
+        for (Map.Entry<Long, Integer> entrada : cantidadesPorProducto.entrySet()) {
+            Producto producto = productos.get(entrada.getKey());
+            int cantidad = entrada.getValue();
+
+            if (producto.isTieneReceta()) {
+                if (producto.getReceta() == null) {
+                    log.error("Producto con receta pero sin receta asociada: {}", producto.getNombre());
+                    throw new RuntimeException("Stock insuficiente para: " + producto.getNombre());
+                }
+                for (RecetaDetalle detalle : producto.getReceta().getIngredientes()) {
+                    Ingrediente ing = detalle.getIngrediente();
+                    ingredientes.put(ing.getId(), ing);
+                    demandaIngredientes.merge(ing.getId(), detalle.getCantidadIngrediente() * cantidad, Double::sum);
+                }
+            } else {
+                demandaProductos.merge(producto.getId(), (double) cantidad, Double::sum);
+            }
+        }
 
-            if (ing.getStockActual() < cantidadNecesaria) {
-                log.warn("Stock insuficiente en ingrediente '{}'. Stock actual: {}, Necesario: {}",
-                        ing.getNombre(), ing.getStockActual(), cantidadNecesaria);
-                return false; // No hay suficiente ingrediente
+        log.debug("Demanda agregada - Ingredientes: {}, Productos directos: {}",
+                demandaIngredientes.size(), demandaProductos.size());
+
+        // Validar contra el stock leído (mensaje claro antes de tocar la BD)
+        for (Map.Entry<Long, Double> entrada : demandaIngredientes.entrySet()) {
+            Ingrediente ing = ingredientes.get(entrada.getKey());
+            if (ing.getStockActual() < entrada.getValue()) {
+                log.error("Stock insuficiente en ingrediente '{}'. Stock actual: {}, Necesario: {}",
+                        ing.getNombre(), ing.getStockActual(), entrada.getValue());
+                metricas.contarRechazoStock("ingrediente", "validacion");
+                throw new RuntimeException("Stock insuficiente para: " + ing.getNombre());
+            }
+        }
+        for (Map.Entry<Long, Double> entrada : demandaProductos.entrySet()) {
+            Producto producto = productos.get(entrada.getKey());
+            double stock = producto.getStock() != null ? producto.getStock() : 0;
+            if (stock < entrada.getValue()) {
+                log.error("Stock insuficiente para producto '{}'. Stock: {}, Cantidad: {}",
+                        producto.getNombre(), stock, entrada.getValue());
+                metricas.contarRechazoStock("producto", "validacion");
+                throw new RuntimeException("Stock insuficiente para: " + producto.getNombre());
+            }
+        }
+
+        // Descontar: si otra venta consumió el stock entretanto, el UPDATE no afecta filas
+        for (Map.Entry<Long, Double> entrada : demandaIngredientes.entrySet()) {
+            if (ingredienteRepo.descontarStockSiDisponible(entrada.getKey(), empresaId, entrada.getValue()) == 0) {
+                String nombre = ingredientes.get(entrada.getKey()).getNombre();
+                log.error("Descuento rechazado para ingrediente '{}', cantidad: {}", nombre, entrada.getValue());
+                metricas.contarRechazoStock("ingrediente", "concurrencia");
+                throw new RuntimeException("Stock insuficiente para: " + nombre);
+            }
+        }
+        for (Map.Entry<Long, Double> entrada : demandaProductos.entrySet()) {
+            if (productoRepo.descontarStockSiDisponible(entrada.getKey(), empresaId, entrada.getValue()) == 0) {
+                String nombre = productos.get(entrada.getKey()).getNombre();
+                log.error("Descuento rechazado para producto '{}', cantidad: {}", nombre, entrada.getValue());
+                metricas.contarRechazoStock("producto", "concurrencia");
+                throw new RuntimeException("Stock insuficiente para: " + nombre);
             }
         }
 
-        // Descontar todos los ingredientes
-        log.debug("Descontando {} ingredientes de la receta", receta.getIngredientes().size());
-        for (RecetaDetalle detalle : receta.getIngredientes()) {
-            Ingrediente ing = detalle.getIngrediente();
-            double cantidadNecesaria = detalle.getCantidadIngrediente() * cantidad;
-            double stockAnterior = ing.getStockActual();
+        stockPosibleCache.invalidarIngredientes(empresaId, demandaIngredientes.keySet());
 
-            ing.setStockActual(stockAnterior - cantidadNecesaria);
-            ingredienteRepo.save(ing);
+        log.info("Stock de venta descontado: {} ingredientes, {} productos directos",
+                demandaIngredientes.size(), demandaProductos.size());
+    }
+
+    // Reintegra el stock de una venta anulada con incrementos atómicos
+    public void reintegrarStockVenta(Map<Long, Producto> productos, Map<Long, Integer> cantidadesPorProducto) {
+        Long empresaId = TenantContext.getCurrentTenant();
+
+        Map<Long, Double> reintegroIngredientes = new TreeMap<>();
+        Map<Long, Double> reintegroProductos = new TreeMap<>();
+
+        for (Map.Entry<Long, Integer> entrada : cantidadesPorProducto.entrySet()) {
+            Producto producto = productos.get(entrada.getKey());
+            int cantidad = entrada.getValue();
 
-            log.trace("Ingrediente '{}' descontado: {}, Stock anterior: {}, Stock nuevo: {}",
-                    ing.getNombre(), cantidadNecesaria, stockAnterior, ing.getStockActual());
+            if (producto.isTieneReceta() && producto.getReceta() != null) {
+                for (RecetaDetalle detalle : producto.getReceta().getIngredientes()) {
+                    reintegroIngredientes.merge(detalle.getIngrediente().getId(),
+                            detalle.getCantidadIngrediente() * cantidad, Double::sum);
+                }
+            } else if (!producto.isTieneReceta()) {
+                reintegroProductos.merge(producto.getId(), (double) cantidad, Double::sum);
+            }
         }
 
-        log.info("Ingredientes descontados exitosamente de receta '{}' para {} unidades",
-                receta.getNombre(), cantidad);
-        return true;
+        reintegroIngredientes.forEach((id, cantidad) -> ingredienteRepo.aumentarStock(id, empresaId, cantidad));
+        reintegroProductos.forEach((id, cantidad) -> productoRepo.aumentarStock(id, empresaId, cantidad));
+
+        stockPosibleCache.invalidarIngredientes(empresaId, reintegroIngredientes.keySet());
+
+        log.info("Stock reintegrado: {} ingredientes, {} productos directos",
+                reintegroIngredientes.size(), reintegroProductos.size());
     }
 
     private void validarProducto(Producto producto) {
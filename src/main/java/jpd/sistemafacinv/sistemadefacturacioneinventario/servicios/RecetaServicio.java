@@ -25,6 +25,7 @@ public class RecetaServicio {
 
     private final RecetaRepositorio repositorio;
     private final IngredienteServicio ingredienteServicio;
+    private final StockPosibleCache stockPosibleCache;
 
     public Receta crearReceta(Receta receta) {
         Long empresaId = TenantContext.getCurrentTenant();
@@ -62,6 +63,13 @@ public class RecetaServicio {
         return recetas;
     }
 
+    // Selector de receta del formulario de productos: solo id, nombre y costo, sin las líneas
+    public List<Receta> listarRecetasParaSeleccion() {
+        long empresaId = TenantContext.getCurrentTenant();
+        log.debug("Listando recetas (sin detalle) para empresa ID: {}", empresaId);
+        return repositorio.findByEmpresaId(empresaId);
+    }
+
     public Receta buscarReceta(long id) {
         long empresaId = TenantContext.getCurrentTenant();
         log.debug("Buscando receta ID: {} para empresa ID: {}", id, empresaId);
@@ -115,6 +123,7 @@ public class RecetaServicio {
         calcularCostoReceta(receta);
 
         Receta recetaActualizada = repositorio.save(receta);
+        stockPosibleCache.invalidarEmpresa(empresaId);
         log.info("Receta actualizada exitosamente: '{}' (ID: {}) con {} ingredientes",
                 recetaActualizada.getNombre(), id, recetaActualizada.getIngredientes().size());
 
@@ -126,6 +135,7 @@ public class RecetaServicio {
 
         Receta receta = buscarReceta(id);
         repositorio.delete(receta);
+        stockPosibleCache.invalidarEmpresa(receta.getEmpresa().getId());
 
         log.info("Receta eliminada: '{}' (ID: {})", receta.getNombre(), id);
     }
@@ -161,6 +171,7 @@ public class RecetaServicio {
         receta.getIngredientes().add(detalle);
         calcularCostoReceta(receta);
         repositorio.save(receta);
+        stockPosibleCache.invalidarEmpresa(empresaIdReceta);
 
         log.info("Detalle agregado a receta '{}' (ID: {}). Ingrediente: '{}' (ID: {}), Cantidad: {}",
                 receta.getNombre(), idReceta,
@@ -178,6 +189,7 @@ public class RecetaServicio {
         if (removed) {
             calcularCostoReceta(receta);
             repositorio.save(receta);
+            stockPosibleCache.invalidarEmpresa(receta.getEmpresa().getId());
             log.info("Detalle ID: {} quitado de receta '{}' (ID: {})",
                     idDetalle, receta.getNombre(), idReceta);
         } else {
@@ -206,6 +218,7 @@ public class RecetaServicio {
         if (actualizado) {
             calcularCostoReceta(receta);
             repositorio.save(receta);
+            stockPosibleCache.invalidarEmpresa(receta.getEmpresa().getId());
             log.info("Cantidad actualizada para detalle ID: {} en receta '{}' (ID: {})",
                     idDetalle, receta.getNombre(), idReceta);
         } else {
@@ -10,15 +10,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.ResumenDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.ItemConsumoDTO;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.ReporteConsumoDTO;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.DetalleCierreInventarioDiarioRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaDetalleProveedorRepositorio;
-import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaDetalleRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ProductoRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ResumenItemProjection;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.StockInicialProjection;
 import lombok.AllArgsConstructor;
 
@@ -31,15 +33,21 @@ public class ReporteConsumoServicio {
     private final DetalleCierreInventarioDiarioRepositorio detalleCierreRepo;
     private final IngredienteRepositorio ingredienteRepo;
     private final FacturaDetalleProveedorRepositorio compraRepo;
-    private final FacturaDetalleRepositorio ventaRepo;
     private final ProductoRepositorio productoRepo;
+    private final ResumenDiarioServicio resumenDiarioServicio;
+    private final MetricasNegocio metricas;
 
     public ReporteConsumoDTO generarReporte(LocalDate inicio, LocalDate fin) {
-        log.info("Generando reporte de consumo desde {} hasta {}", inicio, fin);
+        return metricas.medir(MetricasNegocio.REPORTES_CONSUMO, "generar", () -> construirReporte(inicio, fin));
+    }
+
+    private ReporteConsumoDTO construirReporte(LocalDate inicio, LocalDate fin) {
+        Long empresaId = TenantContext.getCurrentTenant();
+        log.info("Generando reporte de consumo desde {} hasta {} para empresa ID: {}", inicio, fin, empresaId);
 
         // 1. Stock inicial del cierre anterior
         Map<Long, Double> stockInicialMap = new HashMap<>();
-        List<StockInicialProjection> stocksIniciales = detalleCierreRepo.findStockInicialDeCierreAnterior(inicio);
+        List<StockInicialProjection> stocksIniciales = detalleCierreRepo.findStockInicialDeCierreAnterior(empresaId, inicio);
 
         log.debug("Stocks iniciales encontrados: {} registros", stocksIniciales.size());
 
@@ -53,7 +61,7 @@ public class ReporteConsumoServicio {
 
         // 2. Stock real final (al final del período)
         Map<Long, Double> stockFinalMap = new HashMap<>();
-        List<StockInicialProjection> stocksFinales = detalleCierreRepo.findStockRealFinalHastaFecha(fin);
+        List<StockInicialProjection> stocksFinales = detalleCierreRepo.findStockRealFinalHastaFecha(empresaId, fin);
 
         log.debug("Stocks finales encontrados: {} registros", stocksFinales.size());
 
@@ -63,9 +71,25 @@ public class ReporteConsumoServicio {
                     proyeccion.getStockReal());
         }
 
-        // 3. Para cada ingrediente, crear ItemConsumoDTO
-        List<Ingrediente> todosIngredientes = ingredienteRepo.findAll();
-        List<Producto> todoProductoSinReceta = productoRepo.findByTieneRecetaFalse();
+        // 3. Compras, consumo por recetas y ventas directas: suma de los resúmenes diarios del período
+        Map<Long, Double> comprasMap = new HashMap<>();
+        Map<Long, Double> consumoMap = new HashMap<>();
+        Map<Long, Double> ventasSinRecetaMap = new HashMap<>();
+        for (ResumenItemProjection resumen : resumenDiarioServicio.sumarPorItem(empresaId, inicio, fin)) {
+            if (ResumenDiario.INGREDIENTE.equals(resumen.getTipo())) {
+                comprasMap.put(resumen.getItemId(), valor(resumen.getCantidadComprada()));
+                consumoMap.put(resumen.getItemId(), valor(resumen.getCantidadConsumida()));
+            } else {
+                ventasSinRecetaMap.put(resumen.getItemId(), valor(resumen.getCantidadVendida()));
+            }
+        }
+
+        log.debug("Agregados del período - Compras: {}, Consumos: {}, Ventas sin receta: {}",
+                comprasMap.size(), consumoMap.size(), ventasSinRecetaMap.size());
+
+        // 4. Para cada ingrediente, crear ItemConsumoDTO
+        List<Ingrediente> todosIngredientes = ingredienteRepo.findByEmpresaId(empresaId);
+        List<Producto> todoProductoSinReceta = productoRepo.findByEmpresaIdAndTieneRecetaFalse(empresaId);
 
         log.debug("Total ingredientes: {}, Productos sin receta: {}",
                 todosIngredientes.size(), todoProductoSinReceta.size());
@@ -89,14 +113,10 @@ public class ReporteConsumoServicio {
             item.setStockInicial(stockInicial != null ? stockInicial : 0.0);
 
             // Compras en el período
-            Double compras = compraRepo.findComprasByIngredienteAndFecha(
-                    ing.getId(), inicio, fin);
-            item.setComprasPeriodo(compras != null ? compras : 0.0);
+            item.setComprasPeriodo(comprasMap.getOrDefault(ing.getId(), 0.0));
 
             // Consumo por ventas en el período
-            Double consumo = ventaRepo.findConsumoByIngredienteAndFecha(
-                    ing.getId(), inicio, fin);
-            item.setConsumoVentas(consumo != null ? consumo : 0.0);
+            item.setConsumoVentas(consumoMap.getOrDefault(ing.getId(), 0.0));
 
             // Stock real final (0 si no hay cierre en esa fecha)
             Double stockRealFinal = stockFinalMap.get(ing.getId());
@@ -147,9 +167,7 @@ public class ReporteConsumoServicio {
             item.setComprasPeriodo(0.0);
 
             // Consumo por ventas
-            Double consumo = ventaRepo
-                    .findVentasProductoSinRecetaByFecha(producto.getId(), inicio, fin);
-            item.setConsumoVentas(consumo != null ? consumo : 0.0);
+            item.setConsumoVentas(ventasSinRecetaMap.getOrDefault(producto.getId(), 0.0));
 
             // Calcular stock teórico final
             Double stockTeorico = item.getStockInicial()
@@ -179,7 +197,7 @@ public class ReporteConsumoServicio {
                     producto.getNombre(), producto.getId(), diferencia, valorDiferencia);
         }
 
-        // 4. Crear ReporteConsumoDTO
+        // 5. Crear ReporteConsumoDTO
         ReporteConsumoDTO reporte = new ReporteConsumoDTO();
         reporte.setFechaInicio(inicio);
         reporte.setFechaFin(fin);
@@ -203,6 +221,10 @@ public class ReporteConsumoServicio {
         return reporte;
     }
 
+    private double valor(Double numero) {
+        return numero != null ? numero : 0.0;
+    }
+
     private Double calcularCostoPromedio(Long ingredienteId, LocalDate fecha) {
         log.debug("Calculando costo promedio para ingrediente ID: {} hasta fecha: {}", ingredienteId, fecha);
         Double costo = compraRepo.findCostoPromedioHastaFecha(ingredienteId, fecha);
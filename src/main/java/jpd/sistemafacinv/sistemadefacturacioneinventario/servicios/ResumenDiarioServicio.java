@@ -0,0 +1,199 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaDetalleProveedor;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.RecetaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.ResumenDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EventoSalidaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaDetalleProveedorRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaDetalleRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaProveedorRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ResumenDiarioRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ResumenItemProjection;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.TotalDiarioProjection;
+import lombok.AllArgsConstructor;
+
+/**
+ * Mantiene la tabla resumen_diario: totales por empresa, día e
+ * ingrediente/producto. Se actualiza con sumas atómicas en cada compra y, desde
+ * la bandeja de salida, en cada venta y anulación; el cierre definitivo
+ * recalcula y sella el día desde los documentos. Un día sellado queda con los
+ * totales del cierre: ni las anulaciones o compras posteriores de esa fecha ni
+ * las reconstrucciones lo modifican. Los reportes suman estas filas en lugar
+ * de recorrer facturas.
+ */
+@Service
+@AllArgsConstructor
+@Transactional
+public class ResumenDiarioServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumenDiarioServicio.class);
+
+    // Posiciones de los acumulados por fila
+    private static final int VENDIDA = 0;
+    private static final int INGRESOS = 1;
+    private static final int CONSUMIDA = 2;
+    private static final int COMPRADA = 3;
+    private static final int COSTO_COMPRAS = 4;
+
+    private final ResumenDiarioRepositorio resumenRepo;
+    private final FacturaDetalleRepositorio ventaRepo;
+    private final FacturaDetalleProveedorRepositorio compraRepo;
+    private final FacturaRepositorio facturaRepo;
+    private final FacturaProveedorRepositorio facturaProveedorRepo;
+    private final EventoSalidaRepositorio eventoRepo;
+
+    // Venta (signo 1) o anulación (signo -1); productos trae recetas e ingredientes cargados
+    public void registrarVenta(long empresaId, LocalDate fecha, List<FacturaDetalle> detalles,
+            Map<Long, Producto> productos, int signo) {
+        if (diaSellado(empresaId, fecha, signo > 0 ? "venta" : "anulación de venta")) {
+            return;
+        }
+        Map<String, double[]> filas = new TreeMap<>();
+
+        for (FacturaDetalle detalle : detalles) {
+            Producto producto = productos.get(detalle.getProducto().getId());
+            double cantidad = detalle.getCantidad() * signo;
+
+            double[] fila = fila(filas, ResumenDiario.PRODUCTO, producto.getId());
+            fila[VENDIDA] += cantidad;
+            fila[INGRESOS] += cantidad * detalle.getPrecioUnitario();
+
+            if (producto.isTieneReceta() && producto.getReceta() != null) {
+                for (RecetaDetalle rd : producto.getReceta().getIngredientes()) {
+                    fila(filas, ResumenDiario.INGREDIENTE, rd.getIngrediente().getId())[CONSUMIDA] += rd
+                            .getCantidadIngrediente() * cantidad;
+                }
+            }
+        }
+
+        guardar(empresaId, fecha, filas);
+        log.debug("Resumen diario actualizado por venta ({}): {} filas, empresa ID: {}, fecha: {}",
+                signo, filas.size(), empresaId, fecha);
+    }
+
+    // Compra a proveedor (signo 1) o su anulación (signo -1)
+    public void registrarCompra(long empresaId, LocalDate fecha, List<FacturaDetalleProveedor> detalles, int signo) {
+        if (diaSellado(empresaId, fecha, signo > 0 ? "compra" : "anulación de compra")) {
+            return;
+        }
+        Map<String, double[]> filas = new TreeMap<>();
+
+        for (FacturaDetalleProveedor detalle : detalles) {
+            double[] fila = fila(filas, ResumenDiario.INGREDIENTE, detalle.getIngrediente().getId());
+            fila[COMPRADA] += detalle.getCantidad() * signo;
+            fila[COSTO_COMPRAS] += detalle.getCantidad() * detalle.getPrecioUnitario() * signo;
+        }
+
+        guardar(empresaId, fecha, filas);
+        log.debug("Resumen diario actualizado por compra ({}): {} filas, empresa ID: {}, fecha: {}",
+                signo, filas.size(), empresaId, fecha);
+    }
+
+    // Recalcula el día desde las facturas y lo marca como sellado (cierre definitivo)
+    public void sellarDia(long empresaId, LocalDate fecha) {
+        reconstruirRango(empresaId, fecha, fecha);
+        int filas = resumenRepo.sellarDia(empresaId, fecha);
+        log.info("Resumen diario sellado para empresa ID: {}, fecha: {}. Filas: {}", empresaId, fecha, filas);
+    }
+
+    // Rehace los resúmenes del rango a partir de los documentos (3 consultas agrupadas); los días
+    // sellados se dejan como se cerraron
+    public void reconstruirRango(long empresaId, LocalDate inicio, LocalDate fin) {
+        // Antes que el resumen (mismo orden que el procesador de eventos): las ventas aún
+        // pendientes del rango quedan contadas aquí y no deben sumarse otra vez
+        int omitidos = eventoRepo.omitirRango(empresaId, inicio, fin, LocalDateTime.now());
+        if (omitidos > 0) {
+            log.info("{} eventos de venta pendientes cubiertos por la reconstrucción, empresa ID: {}", omitidos,
+                    empresaId);
+        }
+        resumenRepo.eliminarRango(empresaId, inicio, fin);
+
+        Map<LocalDate, Map<String, double[]>> porDia = new TreeMap<>();
+
+        for (TotalDiarioProjection venta : ventaRepo.findVentasDiariasPorProducto(empresaId, inicio, fin)) {
+            double[] fila = fila(porDia.computeIfAbsent(venta.getFecha(), f -> new TreeMap<>()),
+                    ResumenDiario.PRODUCTO, venta.getId());
+            fila[VENDIDA] += valor(venta.getCantidad());
+            fila[INGRESOS] += valor(venta.getImporte());
+        }
+        for (TotalDiarioProjection consumo : ventaRepo.findConsumoDiarioPorIngrediente(empresaId, inicio, fin)) {
+            fila(porDia.computeIfAbsent(consumo.getFecha(), f -> new TreeMap<>()),
+                    ResumenDiario.INGREDIENTE, consumo.getId())[CONSUMIDA] += valor(consumo.getCantidad());
+        }
+        for (TotalDiarioProjection compra : compraRepo.findComprasDiariasPorIngrediente(empresaId, inicio, fin)) {
+            double[] fila = fila(porDia.computeIfAbsent(compra.getFecha(), f -> new TreeMap<>()),
+                    ResumenDiario.INGREDIENTE, compra.getId());
+            fila[COMPRADA] += valor(compra.getCantidad());
+            fila[COSTO_COMPRAS] += valor(compra.getImporte());
+        }
+
+        List<LocalDate> sellados = resumenRepo.findFechasSelladas(empresaId, inicio, fin);
+        porDia.keySet().removeAll(sellados);
+        porDia.forEach((fecha, filasDia) -> guardar(empresaId, fecha, filasDia));
+        log.info("Resumen diario reconstruido para empresa ID: {} desde {} hasta {} ({} días con movimiento, {} sellados)",
+                empresaId, inicio, fin, porDia.size(), sellados.size());
+    }
+
+    // Primera puesta en marcha: generar el histórico de una empresa que aún no tiene resúmenes
+    public void inicializarEmpresa(long empresaId) {
+        if (resumenRepo.existsByEmpresaId(empresaId)) {
+            return;
+        }
+        LocalDate primeraVenta = facturaRepo.findPrimeraFechaByEmpresaId(empresaId);
+        LocalDate primeraCompra = facturaProveedorRepo.findPrimeraFechaByEmpresaId(empresaId);
+        LocalDate inicio = primeraVenta == null ? primeraCompra
+                : primeraCompra == null || primeraVenta.isBefore(primeraCompra) ? primeraVenta : primeraCompra;
+        if (inicio == null) {
+            log.debug("Empresa ID: {} sin documentos, no hay resúmenes que generar", empresaId);
+            return;
+        }
+        log.info("Generando histórico de resúmenes diarios para empresa ID: {} desde {}", empresaId, inicio);
+        reconstruirRango(empresaId, inicio, LocalDate.now());
+    }
+
+    public List<ResumenItemProjection> sumarPorItem(long empresaId, LocalDate inicio, LocalDate fin) {
+        return resumenRepo.sumarPorItem(empresaId, inicio, fin);
+    }
+
+    private boolean diaSellado(long empresaId, LocalDate fecha, String origen) {
+        if (!resumenRepo.existsByEmpresaIdAndFechaAndSelladoTrue(empresaId, fecha)) {
+            return false;
+        }
+        log.warn("Día {} ya sellado por el cierre definitivo, empresa ID: {}: la {} no cambia su resumen", fecha,
+                empresaId, origen);
+        return true;
+    }
+
+    // Las filas se escriben en orden (tipo, id) para que las transacciones concurrentes no se crucen
+    private void guardar(long empresaId, LocalDate fecha, Map<String, double[]> filas) {
+        filas.forEach((clave, v) -> {
+            int separador = clave.indexOf(':');
+            resumenRepo.sumar(empresaId, fecha, clave.substring(0, separador),
+                    Long.parseLong(clave.substring(separador + 1)),
+                    v[VENDIDA], v[INGRESOS], v[CONSUMIDA], v[COMPRADA], v[COSTO_COMPRAS]);
+        });
+    }
+
+    private double[] fila(Map<String, double[]> filas, String tipo, long itemId) {
+        // id con ceros a la izquierda: el orden del TreeMap coincide con el numérico
+        return filas.computeIfAbsent(tipo + ":" + String.format("%019d", itemId), k -> new double[5]);
+    }
+
+    private double valor(Double numero) {
+        return numero != null ? numero : 0.0;
+    }
+}
@@ -0,0 +1,105 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.SecuenciaDocumento;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.SecuenciaDocumentoRepositorio;
+
+/**
+ * Numeración consecutiva por empresa y tipo de documento. El número se toma
+ * con un UPDATE atómico en la misma transacción (y conexión) del documento:
+ * el bloqueo de la fila dura hasta el commit, y si el documento se revierte
+ * el número vuelve a quedar libre, así la numeración no deja huecos.
+ * La fila del contador se crea antes, en su propia transacción: en MySQL
+ * (REPEATABLE READ) un UPDATE que no encuentra la fila deja un gap lock sobre
+ * la clave única hasta el commit del documento, y el INSERT desde otra conexión
+ * quedaría esperándolo hasta agotar innodb_lock_wait_timeout.
+ */
+@Service
+public class SecuenciaServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(SecuenciaServicio.class);
+
+    public static final String FACTURA = "FACTURA";
+    public static final String FACTURA_PROVEEDOR = "FACTURA_PROVEEDOR";
+
+    private final SecuenciaDocumentoRepositorio secuenciaRepo;
+    // Solo para crear el contador la primera vez que la empresa usa la secuencia
+    private final TransactionTemplate transaccionNueva;
+    // Contadores que ya existen ("empresaId:tipo"): la comprobación se hace una vez por nodo
+    private final Set<String> existentes = ConcurrentHashMap.newKeySet();
+
+    public SecuenciaServicio(SecuenciaDocumentoRepositorio secuenciaRepo,
+            PlatformTransactionManager transactionManager) {
+        this.secuenciaRepo = secuenciaRepo;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Devuelve el siguiente número para la empresa y tipo indicados, dentro de
+     * la transacción del documento. {@code valorInicial} solo se consulta la
+     * primera vez que la empresa usa la secuencia, para continuar la numeración
+     * de los documentos existentes.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long siguienteValor(long empresaId, String tipo, LongSupplier valorInicial) {
+        String clave = empresaId + ":" + tipo;
+        if (!existentes.contains(clave)) {
+            asegurarSecuencia(empresaId, tipo, valorInicial);
+            existentes.add(clave);
+        }
+        if (secuenciaRepo.incrementar(empresaId, tipo) == 0) {
+            // Fila borrada después de verla (p. ej. empresa eliminada): se vuelve a comprobar la próxima vez
+            existentes.remove(clave);
+            throw new RuntimeException("Secuencia no encontrada: " + tipo);
+        }
+        long valor = secuenciaRepo.findUltimoValor(empresaId, tipo);
+        log.debug("Número {} tomado para secuencia {} de empresa ID: {}", valor, tipo, empresaId);
+        return valor;
+    }
+
+    // Último número emitido (null si la empresa aún no usa la secuencia); sirve como conteo aproximado
+    public Long ultimoValorReservado(long empresaId, String tipo) {
+        return secuenciaRepo.findByEmpresaIdAndTipo(empresaId, tipo)
+                .map(SecuenciaDocumento::getUltimoValor)
+                .orElse(null);
+    }
+
+    // Transacción aparte y antes del UPDATE del contador: la lectura no bloquea y ve lo último confirmado,
+    // y el INSERT (una sola vez por empresa y tipo) no queda atado a la venta
+    private void asegurarSecuencia(long empresaId, String tipo, LongSupplier valorInicial) {
+        try {
+            transaccionNueva.executeWithoutResult(status -> {
+                if (secuenciaRepo.existsByEmpresaIdAndTipo(empresaId, tipo)) {
+                    return;
+                }
+                long inicial = valorInicial.getAsLong();
+                Empresa empresa = new Empresa();
+                empresa.setId(empresaId);
+                secuenciaRepo.save(SecuenciaDocumento.builder()
+                        .empresa(empresa)
+                        .tipo(tipo)
+                        .ultimoValor(inicial)
+                        .build());
+                log.info("Creando secuencia {} para empresa ID: {} desde {}", tipo, empresaId, inicial);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otra transacción la creó a la vez: se usa la fila existente
+            log.debug("Secuencia {} creada concurrentemente para empresa ID: {}", tipo, empresaId);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.RecetaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ProductoRepositorio;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Caché por empresa del "stock posible" (unidades vendibles según receta)
+ * de los productos con receta. Los faltantes se calculan juntos con una sola
+ * consulta de productos + recetas + ingredientes, y al cambiar el stock de un
+ * ingrediente solo se invalidan los productos cuya receta lo usa.
+ * Solo se invalida con las escrituras de este nodo: las entradas vencen tras
+ * unos segundos para que las ventas y compras de otros nodos también se vean.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockPosibleCache {
+
+    private static final Logger log = LoggerFactory.getLogger(StockPosibleCache.class);
+
+    private final ProductoRepositorio productoRepo;
+
+    @Value("${sistema.cache.stock-posible.vigencia-segundos:30}")
+    private long vigenciaSegundos;
+
+    private final Map<Long, EstadoEmpresa> estados = new ConcurrentHashMap<>();
+
+    public Map<Long, Integer> obtener(long empresaId, Collection<Long> productoIds) {
+        EstadoEmpresa estado = estados.computeIfAbsent(empresaId, k -> new EstadoEmpresa());
+
+        long ahora = System.currentTimeMillis();
+        Map<Long, Integer> resultado = new HashMap<>();
+        List<Long> faltantes = new ArrayList<>();
+        long version;
+        synchronized (estado) {
+            version = estado.version;
+            for (Long id : productoIds) {
+                Entrada entrada = estado.stockPosible.get(id);
+                if (entrada != null && entrada.expira > ahora) {
+                    resultado.put(id, entrada.stock);
+                } else {
+                    faltantes.add(id);
+                }
+            }
+        }
+
+        if (faltantes.isEmpty()) {
+            return resultado;
+        }
+
+        log.debug("Calculando stock posible de {} productos para empresa ID: {}", faltantes.size(), empresaId);
+        List<Producto> productos = productoRepo.findByIdInAndEmpresaIdWithReceta(faltantes, empresaId);
+
+        synchronized (estado) {
+            // Si hubo una invalidación mientras consultábamos, no guardar datos viejos
+            boolean vigente = estado.version == version;
+            // La vigencia cuenta desde antes de la consulta: nunca dura más que el dato leído
+            long expira = ahora + vigenciaSegundos * 1000;
+            for (Producto producto : productos) {
+                int stock = calcular(producto);
+                resultado.put(producto.getId(), stock);
+                if (vigente) {
+                    estado.stockPosible.put(producto.getId(), new Entrada(stock, expira));
+                    if (producto.getReceta() != null) {
+                        for (RecetaDetalle detalle : producto.getReceta().getIngredientes()) {
+                            estado.productosPorIngrediente
+                                    .computeIfAbsent(detalle.getIngrediente().getId(), k -> new HashSet<>())
+                                    .add(producto.getId());
+                        }
+                    }
+                }
+            }
+        }
+        return resultado;
+    }
+
+    // Cambió el stock de estos ingredientes: olvidar solo los productos que los usan
+    public void invalidarIngredientes(long empresaId, Collection<Long> ingredienteIds) {
+        Set<Long> ids = new HashSet<>(ingredienteIds);
+        alConfirmar(() -> {
+            EstadoEmpresa estado = estados.get(empresaId);
+            if (estado == null) {
+                return;
+            }
+            synchronized (estado) {
+                estado.version++;
+                for (Long ingredienteId : ids) {
+                    Set<Long> productos = estado.productosPorIngrediente.remove(ingredienteId);
+                    if (productos != null) {
+                        productos.forEach(estado.stockPosible::remove);
+                    }
+                }
+            }
+            log.trace("Stock posible invalidado para {} ingredientes, empresa ID: {}", ids.size(), empresaId);
+        });
+    }
+
+    // Cambió la estructura (recetas, productos): recalcular todo en la próxima lectura
+    public void invalidarEmpresa(long empresaId) {
+        alConfirmar(() -> {
+            EstadoEmpresa estado = estados.get(empresaId);
+            if (estado == null) {
+                return;
+            }
+            synchronized (estado) {
+                estado.version++;
+                estado.stockPosible.clear();
+                estado.productosPorIngrediente.clear();
+            }
+            log.debug("Stock posible invalidado completo para empresa ID: {}", empresaId);
+        });
+    }
+
+    // Invalidar tras el commit: antes, otra lectura podría volver a cachear el stock sin confirmar
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    private int calcular(Producto producto) {
+        if (!producto.isTieneReceta() || producto.getReceta() == null) {
+            return 0;
+        }
+        int maximoPosible = Integer.MAX_VALUE;
+        for (RecetaDetalle detalle : producto.getReceta().getIngredientes()) {
+            int maxPorIngrediente = (int) (detalle.getIngrediente().getStockActual()
+                    / detalle.getCantidadIngrediente());
+            maximoPosible = Math.min(maximoPosible, maxPorIngrediente);
+        }
+        return maximoPosible == Integer.MAX_VALUE ? 0 : maximoPosible;
+    }
+
+    private static class EstadoEmpresa {
+        private long version;
+        private final Map<Long, Entrada> stockPosible = new HashMap<>();
+        private final Map<Long, Set<Long>> productosPorIngrediente = new HashMap<>();
+    }
+
+    private static class Entrada {
+        private final int stock;
+        private final long expira;
+
+        private Entrada(int stock, long expira) {
+            this.stock = stock;
+            this.expira = expira;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.EmpresaSubdominioCache;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Cliente;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
@@ -28,6 +29,7 @@ public class SuperAdminService {
     private final ClienteRepositorio clienteRepositorio;
     private final PasswordEncoder passwordEncoder;
     private final CierreInventarioDiarioRepositorio cierreRepositorio;
+    private final EmpresaSubdominioCache empresaSubdominioCache;
 
     @Transactional
     public Empresa crearEmpresaCliente(EmpresaClienteDTO dto) {
@@ -44,6 +46,8 @@ public class SuperAdminService {
         log.debug("🏗️ Creando empresa desde DTO");
         Empresa empresa = crearEmpresaDesdeDTO(dto);
         log.info("✅ Empresa creada: {} (ID: {})", empresa.getNombre(), empresa.getId());
+        // El subdominio pudo quedar en caché como "no encontrado"
+        empresaSubdominioCache.invalidar(empresa.getSubdominio());
 
         // 3. Crear usuario admin si está configurado
         if (dto.isCrearUsuarios()) {
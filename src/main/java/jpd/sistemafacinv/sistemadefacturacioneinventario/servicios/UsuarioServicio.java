@@ -5,7 +5,6 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -18,6 +17,7 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import jakarta.servlet.http.HttpServletRequest;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantFilter;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.UsuarioAutenticado;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Usuario;
 import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EmpresaRepositorio;
@@ -83,15 +83,7 @@ public class UsuarioServicio implements UserDetailsService {
         log.info("🔐 Rol: {}", user.getRol());
         log.debug("🔐 Activo: {}", user.isActivo());
 
-        return User.builder()
-                .username(user.getNombreUsuario())
-                .password(user.getContrasenna())
-                .roles(user.getRol())
-                .disabled(!user.isActivo())
-                .accountExpired(false)
-                .credentialsExpired(false)
-                .accountLocked(false)
-                .build();
+        return UsuarioAutenticado.de(user);
     }
     // metodos adicionales para el servicio de usuario.
 
@@ -111,15 +103,7 @@ public class UsuarioServicio implements UserDetailsService {
 
         log.info("✅ SUPER_ADMIN cargado: {} - Rol: {}", username, user.getRol());
 
-        return User.builder()
-                .username(user.getNombreUsuario())
-                .password(user.getContrasenna())
-                .roles(user.getRol())
-                .disabled(!user.isActivo())
-                .accountExpired(false)
-                .credentialsExpired(false)
-                .accountLocked(false)
-                .build();
+        return UsuarioAutenticado.de(user);
     }
 
     private boolean isSuperAdminLogin(HttpServletRequest request) {
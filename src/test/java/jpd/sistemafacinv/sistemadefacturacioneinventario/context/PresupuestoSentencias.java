@@ -0,0 +1,59 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Presupuesto de sentencias SQL para los tests: falla si la acción ejecuta más
+ * sentencias (o más SELECT) de las permitidas y muestra cuáles fueron.
+ */
+public final class PresupuestoSentencias {
+
+    private PresupuestoSentencias() {
+    }
+
+    // Todas las sentencias (SELECT, INSERT, UPDATE...)
+    public static <T> T asegurarMaximo(int maximo, Supplier<T> accion) {
+        return asegurar("sentencias SQL", maximo, ContadorSentencias.Medicion::getTotal, accion);
+    }
+
+    // Solo SELECT: las escrituras crecen con las líneas, las consultas no deberían
+    public static <T> T asegurarMaximoConsultas(int maximo, Supplier<T> accion) {
+        return asegurar("consultas SELECT", maximo, ContadorSentencias.Medicion::getConsultas, accion);
+    }
+
+    public static void asegurarMaximoConsultas(int maximo, Runnable accion) {
+        asegurarMaximoConsultas(maximo, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    private static <T> T asegurar(String que, int maximo, ToIntFunction<ContadorSentencias.Medicion> contar,
+            Supplier<T> accion) {
+        ContadorSentencias.Medicion medicion = ContadorSentencias.iniciar();
+        T resultado;
+        try {
+            resultado = accion.get();
+        } finally {
+            ContadorSentencias.terminar(medicion);
+        }
+        int ejecutadas = contar.applyAsInt(medicion);
+        if (ejecutadas > maximo) {
+            fail("Se esperaban como máximo " + maximo + " " + que + " y se ejecutaron " + ejecutadas + ":\n"
+                    + detalle(medicion));
+        }
+        return resultado;
+    }
+
+    private static String detalle(ContadorSentencias.Medicion medicion) {
+        return medicion.getPorSentencia().entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .map(e -> "  " + e.getValue() + "x " + e.getKey())
+                .collect(Collectors.joining("\n"));
+    }
+}
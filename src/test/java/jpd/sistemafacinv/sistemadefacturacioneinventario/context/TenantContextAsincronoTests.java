@@ -0,0 +1,117 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.context;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Empresa en hilos de fondo: los ejecutores y el planificador llevan la
+ * empresa de quien encola la tarea, y un hilo reutilizado del pool nunca
+ * arrastra la empresa de la tarea anterior.
+ */
+@SpringBootTest
+class TenantContextAsincronoTests {
+
+	@Autowired
+	@Qualifier("taskExecutor")
+	private ThreadPoolTaskExecutor taskExecutor;
+	@Autowired
+	@Qualifier("cierreExecutor")
+	private ThreadPoolTaskExecutor cierreExecutor;
+	@Autowired
+	@Qualifier("eventosExecutor")
+	private ThreadPoolTaskExecutor eventosExecutor;
+	@Autowired
+	private ThreadPoolTaskScheduler taskScheduler;
+
+	@AfterEach
+	void limpiarTenant() {
+		TenantContext.clear();
+	}
+
+	@Test
+	void runAsRestauraLaEmpresaAnteriorAunqueFalle() {
+		TenantContext.setCurrentTenant(1L);
+
+		assertEquals(2L, TenantContext.runAs(2L, TenantContext::getCurrentTenant));
+		TenantContext.runAs(2L, () -> assertNull(TenantContext.runAs(null, TenantContext::getCurrentTenant)));
+		assertThrows(IllegalStateException.class, () -> TenantContext.runAs(3L, () -> {
+			throw new IllegalStateException("falla dentro de la empresa 3");
+		}));
+
+		assertEquals(1L, TenantContext.getCurrentTenant());
+	}
+
+	@Test
+	void ejecutoresLlevanLaEmpresaSinFugasEntreTareas() throws Exception {
+		for (ThreadPoolTaskExecutor ejecutor : List.of(taskExecutor, cierreExecutor, eventosExecutor)) {
+			Future<Long> conEmpresa = TenantContext.runAs(7L,
+					() -> ejecutor.submit(TenantContext::getCurrentTenant));
+			assertEquals(7L, conEmpresa.get(5, TimeUnit.SECONDS));
+
+			// Una tarea por hilo del pool que deja una empresa sin limpiar
+			List<Future<?>> sucias = new ArrayList<>();
+			for (int i = 0; i < ejecutor.getCorePoolSize(); i++) {
+				sucias.add(ejecutor.submit(() -> TenantContext.setCurrentTenant(99L)));
+			}
+			for (Future<?> sucia : sucias) {
+				sucia.get(5, TimeUnit.SECONDS);
+			}
+
+			// Las siguientes, encoladas sin empresa, corren en esos mismos hilos y no la ven
+			for (int i = 0; i < ejecutor.getCorePoolSize() * 3; i++) {
+				assertNull(ejecutor.submit(TenantContext::getCurrentTenant).get(5, TimeUnit.SECONDS));
+			}
+		}
+
+		// CompletableFuture sobre el ejecutor de @Async
+		CompletableFuture<Long> futuro = TenantContext.runAs(8L,
+				() -> CompletableFuture.supplyAsync(TenantContext::getCurrentTenant, taskExecutor));
+		assertEquals(8L, futuro.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void tareasProgramadasUsanLaEmpresaCapturadaAlProgramar() throws Exception {
+		CompletableFuture<Long> conEmpresa = new CompletableFuture<>();
+		TenantContext.runAs(5L, () -> taskScheduler.schedule(
+				() -> conEmpresa.complete(TenantContext.getCurrentTenant()), Instant.now()));
+		assertEquals(5L, conEmpresa.get(5, TimeUnit.SECONDS));
+
+		for (int i = 0; i < taskScheduler.getPoolSize(); i++) {
+			taskScheduler.schedule(() -> TenantContext.setCurrentTenant(99L), Instant.now()).get(5, TimeUnit.SECONDS);
+		}
+		for (int i = 0; i < taskScheduler.getPoolSize() * 3; i++) {
+			CompletableFuture<Long> sinEmpresa = new CompletableFuture<>();
+			taskScheduler.schedule(() -> sinEmpresa.complete(TenantContext.getCurrentTenant()), Instant.now());
+			assertNull(sinEmpresa.get(5, TimeUnit.SECONDS));
+		}
+
+		// Recorrido por empresas dentro de una tarea: cada una con la suya, el hilo queda limpio
+		CompletableFuture<List<Long>> recorrido = new CompletableFuture<>();
+		taskScheduler.schedule(() -> {
+			List<Long> vistas = new ArrayList<>();
+			for (Long empresaId : List.of(11L, 12L)) {
+				TenantContext.runAs(empresaId, () -> vistas.add(TenantContext.getCurrentTenant()));
+			}
+			vistas.add(TenantContext.getCurrentTenant());
+			recorrido.complete(vistas);
+		}, Instant.now());
+		assertEquals(Arrays.asList(11L, 12L, null), recorrido.get(5, TimeUnit.SECONDS));
+	}
+}
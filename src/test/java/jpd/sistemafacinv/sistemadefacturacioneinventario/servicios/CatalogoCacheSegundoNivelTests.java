@@ -0,0 +1,127 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.context.PresupuestoSentencias.asegurarMaximoConsultas;
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.DatosPrueba.facturaDe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.util.ArrayList;
+
+import javax.cache.CacheManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.config.CacheSegundoNivelConfig;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Cliente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ClienteRepositorio;
+
+/**
+ * Caché de segundo nivel del catálogo: recetas y clientes no vuelven a la
+ * base tras una venta, los productos (llevan el stock) siempre se leen de la
+ * base, y los cambios de stock o precio se ven en la lectura siguiente.
+ */
+@SpringBootTest
+class CatalogoCacheSegundoNivelTests {
+
+	@Autowired
+	private FacturaServicio facturaServicio;
+	@Autowired
+	private ProductoServicio productoServicio;
+	@Autowired
+	private ClienteServicio clienteServicio;
+	@Autowired
+	private RecetaServicio recetaServicio;
+	@Autowired
+	private ClienteRepositorio clienteRepo;
+	@Autowired
+	private DatosPrueba datos;
+	@Autowired
+	private CacheManager cacheSegundoNivel;
+
+	@AfterEach
+	void limpiarTenant() {
+		TenantContext.clear();
+	}
+
+	@Test
+	void recetasYClientesSalenDeCacheTrasUnaVenta() {
+		Empresa empresa = datos.crearEmpresa("cache-pos");
+		Producto plato = crearPlatoConReceta(empresa);
+		Cliente cliente = clienteRepo.save(Cliente.builder()
+				.empresa(empresa)
+				.nombre("Cliente cache")
+				.activo(true)
+				.facturas(new ArrayList<>())
+				.build());
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		recetaServicio.listarRecetasParaSeleccion();
+		clienteServicio.listarClientes();
+
+		// La venta escribe ingredientes, factura y su evento (y luego el resumen diario): nada del catálogo
+		Factura factura = facturaDe(plato, 2);
+		Cliente ref = new Cliente();
+		ref.setId(cliente.getId());
+		factura.setCliente(ref);
+		facturaServicio.crearFactura(factura);
+
+		asegurarMaximoConsultas(0, () -> {
+			assertEquals(1, recetaServicio.listarRecetasParaSeleccion().size());
+			assertEquals(1, clienteServicio.listarClientes().size());
+		});
+		// La grilla del POS va a la base: el stock no se sirve desde la caché
+		assertEquals(1, asegurarMaximoConsultas(1, () -> productoServicio.listarProductos()).size());
+	}
+
+	@Test
+	void ventaYEdicionSeVenEnLaSiguienteLectura() {
+		Empresa empresa = datos.crearEmpresa("cache-invalidacion");
+		Producto bebida = datos.crearProducto(empresa, "Bebida", 2000.0, 100.0);
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		assertEquals(100.0, productoServicio.listarProductos().get(0).getStock());
+
+		// Descuento con UPDATE masivo: el producto no está en caché, la lectura siguiente ve el stock nuevo
+		facturaServicio.crearFactura(facturaDe(bebida, 3));
+		assertEquals(97.0, productoServicio.listarProductos().get(0).getStock());
+
+		Producto cambios = Producto.builder()
+				.nombre("Bebida")
+				.tieneReceta(false)
+				.precioVenta(2500.0)
+				.stock(97.0)
+				.unidadMedidaVenta("UNIDAD")
+				.activo(true)
+				.build();
+		productoServicio.actualizarProducto((int) bebida.getId(), cambios);
+		assertEquals(2500.0, productoServicio.listarProductos().get(0).getPrecioVenta());
+		assertEquals(2500.0, productoServicio.buscarProducto(bebida.getId()).getPrecioVenta());
+	}
+
+	@Test
+	void otroContextoEnLaMismaJvmTieneSusPropiasRegiones() throws Exception {
+		// Lo que hace un segundo contexto de Spring (otra configuración de test) mientras este sigue abierto
+		try (CacheManager otro = new CacheSegundoNivelConfig().cacheSegundoNivel(100, 1, 100)) {
+			assertNotSame(cacheSegundoNivel, otro);
+			assertNotNull(otro.getCache(Empresa.class.getName()));
+		}
+		assertFalse(cacheSegundoNivel.isClosed());
+		assertNotNull(cacheSegundoNivel.getCache(Empresa.class.getName()));
+	}
+
+	// 100 g de harina por pan, sin stock propio
+	private Producto crearPlatoConReceta(Empresa empresa) {
+		Ingrediente harina = datos.crearIngrediente(empresa, "Harina", 10_000);
+		return datos.crearProductoConReceta(empresa, "Pan", 1000.0, 100, harina);
+	}
+}
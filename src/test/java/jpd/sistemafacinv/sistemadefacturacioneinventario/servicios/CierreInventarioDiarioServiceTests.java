@@ -0,0 +1,184 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.context.PresupuestoSentencias.asegurarMaximoConsultas;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DetalleCierreInventarioDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.TrabajoCierre;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Usuario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.DetallesCierreDTO;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ProductoRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.TrabajoCierreRepositorio;
+
+@SpringBootTest
+class CierreInventarioDiarioServiceTests {
+
+	@Autowired
+	private CierreInventarioDiarioService cierreService;
+	@Autowired
+	private CierreTrabajoServicio cierreTrabajoServicio;
+	@Autowired
+	private IngredienteRepositorio ingredienteRepo;
+	@Autowired
+	private ProductoRepositorio productoRepo;
+	@Autowired
+	private TrabajoCierreRepositorio trabajoRepo;
+	@Autowired
+	private DatosPrueba datos;
+
+	@AfterEach
+	void limpiarTenant() {
+		TenantContext.clear();
+	}
+
+	@Test
+	void cierreCopiaStockGuardaConteoYAjustaInventario() {
+		Empresa empresa = datos.crearEmpresaSinCierre("cierre");
+		Usuario usuario = datos.crearUsuario(empresa, "ADMIN");
+		Ingrediente azucar = crearIngrediente(empresa, 10);
+		Producto gaseosa = datos.crearProducto(empresa, "Gaseosa", 3.0, 5.0);
+		datos.crearProductoConReceta(empresa, "Torta", 9.0, 0);
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		CierreInventarioDiario cierre = cierreService.iniciarCierreParaFecha(usuario, LocalDate.now());
+
+		// Solo ingredientes y productos sin receta, con el stock del momento
+		List<DetalleCierreInventarioDiario> detalles = cierreService.obtenerDetallesCierre(cierre.getId());
+		assertEquals(2, detalles.size());
+
+		List<DetallesCierreDTO.DetalleRequest> conteos = new ArrayList<>();
+		for (DetalleCierreInventarioDiario detalle : detalles) {
+			DetallesCierreDTO.DetalleRequest conteo = new DetallesCierreDTO.DetalleRequest();
+			conteo.setId(detalle.getId());
+			if (detalle.getIngrediente() != null) {
+				assertEquals(10, detalle.getStockTeorico(), 0.0001);
+				assertEquals(2, detalle.getCostoUnitario(), 0.0001);
+				conteo.setStockReal(7.0);
+				conteo.setMerma(1.0);
+			} else {
+				assertNotNull(detalle.getProducto());
+				assertEquals(5, detalle.getStockTeorico(), 0.0001);
+				conteo.setStockReal(6.0);
+			}
+			conteos.add(conteo);
+		}
+
+		// Guardar el conteo: el cierre y sus detalles en dos lecturas, sin importar cuántos detalles sean
+		asegurarMaximoConsultas(2, () -> cierreService.actualizarDetalles(cierre.getId(), conteos));
+		for (DetalleCierreInventarioDiario detalle : cierreService.obtenerDetallesCierre(cierre.getId())) {
+			if (detalle.getIngrediente() != null) {
+				assertEquals(-2, detalle.getDiferencia(), 0.0001);
+				assertEquals(-4, detalle.getValorDiferencia(), 0.0001);
+			} else {
+				assertEquals(1, detalle.getDiferencia(), 0.0001);
+				assertEquals(3, detalle.getValorDiferencia(), 0.0001);
+			}
+		}
+
+		cierreService.completarCierre(cierre.getId());
+		cierreService.completarCierreDefinitivo(cierre.getId());
+
+		CierreInventarioDiario completado = cierreService.buscarCierre(cierre.getId());
+		assertEquals("COMPLETADO", completado.getEstado());
+		assertEquals(0, completado.getCantidadFacturas());
+		assertEquals(0, completado.getTotalVentas(), 0.0001);
+		assertEquals(7, ingredienteRepo.findById(azucar.getId()).orElseThrow().getStockActual(), 0.0001);
+		assertEquals(6, productoRepo.findById(gaseosa.getId()).orElseThrow().getStock(), 0.0001);
+	}
+
+	@Test
+	void cierreDefinitivoEnSegundoPlanoTerminaYReportaProgreso() throws Exception {
+		Empresa empresa = datos.crearEmpresaSinCierre("cierre-trabajo");
+		Usuario usuario = datos.crearUsuario(empresa, "ADMIN");
+		Ingrediente azucar = crearIngrediente(empresa, 4);
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		CierreInventarioDiario cierre = cierreService.iniciarCierreParaFecha(usuario, LocalDate.now());
+		DetalleCierreInventarioDiario detalle = cierreService.obtenerDetallesCierre(cierre.getId()).get(0);
+		DetallesCierreDTO.DetalleRequest conteo = new DetallesCierreDTO.DetalleRequest();
+		conteo.setId(detalle.getId());
+		conteo.setStockReal(3.0);
+		cierreService.actualizarDetalles(cierre.getId(), List.of(conteo));
+		cierreService.completarCierre(cierre.getId());
+
+		TrabajoCierre trabajo = cierreTrabajoServicio.encolar(cierre.getId());
+		long limite = System.currentTimeMillis() + 10_000;
+		TrabajoCierre estado = cierreTrabajoServicio.buscarTrabajo(trabajo.getId());
+		while (!TrabajoCierre.TERMINADO.equals(estado.getEstado()) && !TrabajoCierre.FALLIDO.equals(estado.getEstado())
+				&& System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+			estado = cierreTrabajoServicio.buscarTrabajo(trabajo.getId());
+		}
+
+		assertEquals(TrabajoCierre.TERMINADO, estado.getEstado());
+		assertEquals(100, estado.getProgreso());
+		assertEquals("COMPLETADO", cierreService.buscarCierre(cierre.getId()).getEstado());
+		assertEquals(3, ingredienteRepo.findById(azucar.getId()).orElseThrow().getStockActual(), 0.0001);
+	}
+
+	@Test
+	void soloSeRetomanTrabajosCuyoNodoDejoDeLatir() {
+		// Uno corre en otro nodo vivo (latido reciente); el otro quedó a medias en un nodo caído
+		CierreInventarioDiario vivo = cierrePreCompletado("cierre-latido-vivo");
+		CierreInventarioDiario caido = cierrePreCompletado("cierre-latido-caido");
+		TrabajoCierre enOtroNodo = trabajoRepo.save(trabajoEjecutando(vivo, LocalDateTime.now()));
+		TrabajoCierre interrumpido = trabajoRepo.save(trabajoEjecutando(caido, LocalDateTime.now().minusMinutes(10)));
+
+		cierreTrabajoServicio.reanudarPendientes();
+
+		await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(TrabajoCierre.TERMINADO,
+				trabajoRepo.findById(interrumpido.getId()).orElseThrow().getEstado()));
+		TenantContext.setCurrentTenant(caido.getEmpresa().getId());
+		assertEquals("COMPLETADO", cierreService.buscarCierre(caido.getId()).getEstado());
+
+		assertEquals(TrabajoCierre.EJECUTANDO, trabajoRepo.findById(enOtroNodo.getId()).orElseThrow().getEstado());
+		TenantContext.setCurrentTenant(vivo.getEmpresa().getId());
+		assertEquals("PRE-COMPLETADO", cierreService.buscarCierre(vivo.getId()).getEstado());
+	}
+
+	private CierreInventarioDiario cierrePreCompletado(String subdominio) {
+		Empresa empresa = datos.crearEmpresaSinCierre(subdominio);
+		Usuario usuario = datos.crearUsuario(empresa, "ADMIN");
+		crearIngrediente(empresa, 4);
+		TenantContext.setCurrentTenant(empresa.getId());
+		CierreInventarioDiario cierre = cierreService.iniciarCierreParaFecha(usuario, LocalDate.now());
+		cierreService.completarCierre(cierre.getId());
+		TenantContext.clear();
+		return cierre;
+	}
+
+	private static TrabajoCierre trabajoEjecutando(CierreInventarioDiario cierre, LocalDateTime ultimoLatido) {
+		return TrabajoCierre.builder()
+				.empresa(cierre.getEmpresa())
+				.cierre(cierre)
+				.estado(TrabajoCierre.EJECUTANDO)
+				.paso("Ejecutando")
+				.fechaCreacion(ultimoLatido)
+				.fechaInicio(ultimoLatido)
+				.ultimoLatido(ultimoLatido)
+				.build();
+	}
+
+	private Ingrediente crearIngrediente(Empresa empresa, double stock) {
+		return datos.crearIngrediente(empresa, "Azucar", stock, 0, 2);
+	}
+}
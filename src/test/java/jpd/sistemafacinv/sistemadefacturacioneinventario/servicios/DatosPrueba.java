@@ -0,0 +1,158 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.CierreInventarioDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.FacturaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Receta;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.RecetaDetalle;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Usuario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.CierreInventarioDiarioRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EmpresaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ProductoRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.RecetaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.UsuarioRepositorio;
+
+/**
+ * Datos de prueba compartidos por los tests de servicios: empresas, usuarios,
+ * ingredientes, productos (con o sin receta) y facturas por vender.
+ * Es un bean del contexto de test (lo encuentra el escaneo de componentes),
+ * así que todos los tests siguen compartiendo el mismo contexto de Spring.
+ */
+@Component
+public class DatosPrueba {
+
+	@Autowired
+	private EmpresaRepositorio empresaRepo;
+	@Autowired
+	private UsuarioRepositorio usuarioRepo;
+	@Autowired
+	private CierreInventarioDiarioRepositorio cierreRepo;
+	@Autowired
+	private IngredienteRepositorio ingredienteRepo;
+	@Autowired
+	private RecetaRepositorio recetaRepo;
+	@Autowired
+	private ProductoRepositorio productoRepo;
+
+	// Empresa lista para facturar: un cajero y el cierre de ayer completado (sin él no se puede vender)
+	public Empresa crearEmpresa(String subdominio) {
+		Empresa empresa = crearEmpresaSinCierre(subdominio);
+		cierreRepo.save(CierreInventarioDiario.builder()
+				.empresa(empresa)
+				.usuario(crearUsuario(empresa, "CAJERO"))
+				.fecha(LocalDate.now().minusDays(1))
+				.estado("COMPLETADO")
+				.detalles(new ArrayList<>())
+				.build());
+		return empresa;
+	}
+
+	public Empresa crearEmpresaSinCierre(String subdominio) {
+		return empresaRepo.save(Empresa.builder()
+				.nombre("Empresa " + subdominio)
+				.subdominio(subdominio)
+				.estado(true)
+				.fechaCreacion(LocalDate.now())
+				.build());
+	}
+
+	// El nombre de usuario es único: rol en minúsculas y subdominio ("cajero-ventas")
+	public Usuario crearUsuario(Empresa empresa, String rol) {
+		return usuarioRepo.save(Usuario.builder()
+				.empresa(empresa)
+				.nombreUsuario(rol.toLowerCase() + "-" + empresa.getSubdominio())
+				.contrasenna("x")
+				.rol(rol)
+				.activo(true)
+				.build());
+	}
+
+	public Ingrediente crearIngrediente(Empresa empresa, String nombre, double stock) {
+		return crearIngrediente(empresa, nombre, stock, 0, 0);
+	}
+
+	public Ingrediente crearIngrediente(Empresa empresa, String nombre, double stock, double minimo, double precio) {
+		return ingredienteRepo.save(Ingrediente.builder()
+				.empresa(empresa)
+				.nombre(nombre)
+				.unidadMedida("GR")
+				.stockActual(stock)
+				.stockMinimo(minimo)
+				.precio(precio)
+				.activo(true)
+				.build());
+	}
+
+	// Producto sin receta: se vende de su propio stock
+	public Producto crearProducto(Empresa empresa, String nombre, double precio, double stock) {
+		return productoRepo.save(Producto.builder()
+				.empresa(empresa)
+				.nombre(nombre)
+				.tieneReceta(false)
+				.precioVenta(precio)
+				.stock(stock)
+				.activo(true)
+				.build());
+	}
+
+	// Receta con el mismo nombre del producto: la misma cantidad de cada ingrediente por unidad vendida
+	public Producto crearProductoConReceta(Empresa empresa, String nombre, double precio, double cantidad,
+			Ingrediente... ingredientes) {
+		Receta receta = Receta.builder()
+				.empresa(empresa)
+				.nombre(nombre)
+				.ingredientes(new ArrayList<>())
+				.build();
+		for (Ingrediente ingrediente : ingredientes) {
+			receta.getIngredientes().add(RecetaDetalle.builder()
+					.receta(receta)
+					.ingrediente(ingrediente)
+					.cantidadIngrediente(cantidad)
+					.build());
+		}
+		return productoRepo.save(Producto.builder()
+				.empresa(empresa)
+				.nombre(nombre)
+				.tieneReceta(true)
+				.receta(recetaRepo.save(receta))
+				.precioVenta(precio)
+				.stock(0.0)
+				.activo(true)
+				.build());
+	}
+
+	public static Factura facturaDe(Producto producto, int cantidad) {
+		Factura factura = new Factura();
+		factura.getFacturaDetalle().add(detalleDe(producto, cantidad));
+		return factura;
+	}
+
+	// Una unidad de cada producto
+	public static Factura facturaDe(Producto... productos) {
+		Factura factura = new Factura();
+		for (Producto producto : productos) {
+			factura.getFacturaDetalle().add(detalleDe(producto, 1));
+		}
+		return factura;
+	}
+
+	// Como llega del POS: el producto solo con su id
+	private static FacturaDetalle detalleDe(Producto producto, int cantidad) {
+		Producto ref = new Producto();
+		ref.setId(producto.getId());
+		FacturaDetalle detalle = new FacturaDetalle();
+		detalle.setProducto(ref);
+		detalle.setCantidad(cantidad);
+		return detalle;
+	}
+}
@@ -0,0 +1,192 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static org.awaitility.Awaitility.await;
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.DatosPrueba.facturaDe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.EventoSalida;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.ResumenDiario;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.EventoSalidaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ResumenItemProjection;
+
+/**
+ * Bandeja de salida: la venta y la anulación dejan su evento con la factura,
+ * el resumen diario y la alerta de stock bajo se aplican en segundo plano, y
+ * la reconstrucción del resumen no vuelve a sumar los eventos pendientes.
+ */
+@SpringBootTest
+class EventoSalidaServicioTests {
+
+	@Autowired
+	private FacturaServicio facturaServicio;
+	@Autowired
+	private ResumenDiarioServicio resumenDiarioServicio;
+	@Autowired
+	private EventoSalidaServicio eventoSalidaServicio;
+	@Autowired
+	private EventoSalidaRepositorio eventoRepo;
+	@Autowired
+	private DatosPrueba datos;
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@AfterEach
+	void limpiarTenant() {
+		TenantContext.clear();
+	}
+
+	@Test
+	void ventaYAnulacionSeAplicanEnSegundoPlanoEnOrden() {
+		Empresa empresa = datos.crearEmpresa("eventos-venta");
+		Long empresaId = empresa.getId();
+		// 1000 g con mínimo 900: vender 2 panes (200 g) lo deja bajo el mínimo
+		Producto pan = crearPan(empresa, 1000, 900);
+
+		TenantContext.setCurrentTenant(empresaId);
+		Factura factura = facturaServicio.crearFactura(facturaDe(pan, 2));
+
+		await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+			assertEquals(1, eventoRepo.countByEmpresaIdAndEstado(empresaId, EventoSalida.PROCESADO));
+			assertVendido(empresaId, 2);
+		});
+		assertEquals(1.0, meterRegistry.get(MetricasNegocio.STOCK_BAJO)
+				.tag("empresa", empresaId.toString()).counter().count(), 0.0001);
+
+		facturaServicio.anularFactura(factura.getId());
+
+		await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+			assertEquals(2, eventoRepo.countByEmpresaIdAndEstado(empresaId, EventoSalida.PROCESADO));
+			assertVendido(empresaId, 0);
+		});
+		List<EventoSalida> eventos = eventoRepo.findByEmpresaIdAndEstadoOrderByIdAsc(empresaId,
+				EventoSalida.PROCESADO, Pageable.unpaged());
+		assertEquals(EventoSalida.VENTA, eventos.get(0).getTipo());
+		assertEquals(EventoSalida.ANULACION, eventos.get(1).getTipo());
+		assertEquals(1, eventos.get(0).getIntentos());
+	}
+
+	@Test
+	void reconstruccionNoVuelveASumarEventosPendientes() {
+		Empresa empresa = datos.crearEmpresa("eventos-cierre");
+		Long empresaId = empresa.getId();
+		Producto pan = crearPan(empresa, 10_000, 0);
+
+		TenantContext.setCurrentTenant(empresaId);
+		Factura factura = facturaServicio.crearFactura(facturaDe(pan, 3));
+		await().atMost(10, TimeUnit.SECONDS)
+				.until(() -> eventoRepo.countByEmpresaIdAndEstado(empresaId, EventoSalida.PROCESADO) == 1);
+
+		// Evento en espera de reintento cuando el cierre recalcula el día
+		EventoSalida pendiente = eventoRepo.save(EventoSalida.builder()
+				.empresa(empresa)
+				.tipo(EventoSalida.VENTA)
+				.facturaId((long) factura.getId())
+				.fecha(LocalDate.now())
+				.estado(EventoSalida.PENDIENTE)
+				.intentos(1)
+				.proximoIntento(LocalDateTime.now().plusHours(1))
+				.fechaCreacion(LocalDateTime.now())
+				.build());
+
+		resumenDiarioServicio.reconstruirRango(empresaId, LocalDate.now(), LocalDate.now());
+		eventoSalidaServicio.despachar(empresaId);
+
+		assertEquals(EventoSalida.OMITIDO, eventoRepo.findById(pendiente.getId()).orElseThrow().getEstado());
+		assertVendido(empresaId, 3);
+	}
+
+	@Test
+	void resumenIncrementalCoincideConElReconstruidoDesdeLasFacturas() {
+		Empresa empresa = datos.crearEmpresa("eventos-resumen");
+		Long empresaId = empresa.getId();
+		Producto pan = crearPan(empresa, 10_000, 0);
+
+		TenantContext.setCurrentTenant(empresaId);
+		facturaServicio.crearFactura(facturaDe(pan, 1));
+		Factura anulada = facturaServicio.crearFactura(facturaDe(pan, 2));
+		facturaServicio.crearFactura(facturaDe(pan, 3));
+		facturaServicio.anularFactura(anulada.getId());
+
+		// Tres ventas y una anulación aplicadas en segundo plano
+		await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+			assertEquals(4, eventoRepo.countByEmpresaIdAndEstado(empresaId, EventoSalida.PROCESADO));
+			assertResumen(empresaId, 4);
+		});
+
+		resumenDiarioServicio.reconstruirRango(empresaId, LocalDate.now(), LocalDate.now());
+		assertResumen(empresaId, 4);
+	}
+
+	@Test
+	void anulacionDeUnDiaSelladoNoCambiaSuResumen() {
+		Empresa empresa = datos.crearEmpresa("eventos-sellado");
+		Long empresaId = empresa.getId();
+		Producto pan = crearPan(empresa, 10_000, 0);
+
+		TenantContext.setCurrentTenant(empresaId);
+		Factura factura = facturaServicio.crearFactura(facturaDe(pan, 2));
+		await().atMost(10, TimeUnit.SECONDS)
+				.until(() -> eventoRepo.countByEmpresaIdAndEstado(empresaId, EventoSalida.PROCESADO) == 1);
+
+		// Cierre definitivo del día: desde aquí el resumen queda con los totales cerrados
+		resumenDiarioServicio.sellarDia(empresaId, LocalDate.now());
+		facturaServicio.anularFactura(factura.getId());
+
+		await().atMost(10, TimeUnit.SECONDS)
+				.until(() -> eventoRepo.countByEmpresaIdAndEstado(empresaId, EventoSalida.PROCESADO) == 2);
+		assertResumen(empresaId, 2);
+
+		// Tampoco una reconstrucción lo rehace desde las facturas (que ya no cuentan la anulada)
+		resumenDiarioServicio.reconstruirRango(empresaId, LocalDate.now(), LocalDate.now());
+		assertResumen(empresaId, 2);
+	}
+
+	// Producto vendido con sus ingresos y la harina consumida (100 g por pan)
+	private void assertResumen(Long empresaId, double panes) {
+		List<ResumenItemProjection> resumenes = resumenDiarioServicio.sumarPorItem(empresaId, LocalDate.now(),
+				LocalDate.now());
+		assertEquals(2, resumenes.size());
+		for (ResumenItemProjection resumen : resumenes) {
+			if (ResumenDiario.PRODUCTO.equals(resumen.getTipo())) {
+				assertEquals(panes, resumen.getCantidadVendida(), 0.0001);
+				assertEquals(panes * 1000.0, resumen.getIngresos(), 0.0001);
+			} else {
+				assertEquals(panes * 100, resumen.getCantidadConsumida(), 0.0001);
+			}
+		}
+	}
+
+	private void assertVendido(Long empresaId, double cantidad) {
+		List<ResumenItemProjection> resumenes = resumenDiarioServicio.sumarPorItem(empresaId, LocalDate.now(),
+				LocalDate.now());
+		ResumenItemProjection producto = resumenes.stream()
+				.filter(r -> ResumenDiario.PRODUCTO.equals(r.getTipo()))
+				.findFirst()
+				.orElseThrow();
+		assertEquals(cantidad, producto.getCantidadVendida(), 0.0001);
+	}
+
+	// 100 g de harina por pan
+	private Producto crearPan(Empresa empresa, double stockHarina, double minimoHarina) {
+		Ingrediente harina = datos.crearIngrediente(empresa, "Harina", stockHarina, minimoHarina, 0);
+		return datos.crearProductoConReceta(empresa, "Pan", 1000.0, 100, harina);
+	}
+}
@@ -0,0 +1,102 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.DatosPrueba.facturaDe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Cliente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ClienteRepositorio;
+
+/**
+ * Exportación de facturas a CSV: una línea por detalle, y los nombres que
+ * una hoja de cálculo tomaría como fórmula salen como texto.
+ */
+@SpringBootTest
+class ExportacionFacturasServicioTests {
+
+	@Autowired
+	private FacturaServicio facturaServicio;
+	@Autowired
+	private ExportacionFacturasServicio exportacionFacturasServicio;
+	@Autowired
+	private ClienteRepositorio clienteRepo;
+	@Autowired
+	private DatosPrueba datos;
+
+	@AfterEach
+	void limpiarTenant() {
+		TenantContext.clear();
+	}
+
+	@Test
+	void exportaUnaLineaPorDetalleDelRango() throws Exception {
+		Empresa empresa = datos.crearEmpresa("exportacion-lineas");
+		Producto gaseosa = crearProducto(empresa, "Gaseosa");
+		Producto pan = crearProducto(empresa, "Pan");
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		facturaServicio.crearFactura(facturaDe(gaseosa, pan));
+		facturaServicio.crearFactura(facturaDe(pan));
+
+		StringWriter csv = new StringWriter();
+		assertEquals(3, exportacionFacturasServicio.exportarCsv(LocalDate.now(), LocalDate.now(), csv));
+		String[] lineas = csv.toString().split("\r\n");
+		assertEquals(4, lineas.length);
+		assertTrue(lineas[0].startsWith("numero_factura,"));
+
+		// Fuera del rango no hay nada que exportar
+		StringWriter ayer = new StringWriter();
+		assertEquals(0, exportacionFacturasServicio.exportarCsv(LocalDate.now().minusDays(1),
+				LocalDate.now().minusDays(1), ayer));
+	}
+
+	@Test
+	void nombresConFormulaSeExportanComoTexto() throws Exception {
+		Empresa empresa = datos.crearEmpresa("exportacion-formulas");
+		Cliente cliente = clienteRepo.save(Cliente.builder()
+				.empresa(empresa)
+				.nombre("=HYPERLINK(\"http://x.test\",\"clic\")")
+				.activo(true)
+				.build());
+		Producto arroba = crearProducto(empresa, "@SUM(A1:A9)");
+		Producto menos = crearProducto(empresa, "-2+3");
+		Producto tab = crearProducto(empresa, "\tcmd");
+		Producto normal = crearProducto(empresa, "Pan, grande");
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		Factura factura = facturaDe(arroba, menos, tab, normal);
+		factura.setCliente(cliente);
+		facturaServicio.crearFactura(factura);
+
+		StringWriter csv = new StringWriter();
+		assertEquals(4, exportacionFacturasServicio.exportarCsv(LocalDate.now(), LocalDate.now(), csv));
+		String[] lineas = csv.toString().split("\r\n");
+		assertEquals(5, lineas.length);
+
+		String clienteCsv = "\"'=HYPERLINK(\"\"http://x.test\"\",\"\"clic\"\")\"";
+		for (int i = 1; i < lineas.length; i++) {
+			assertTrue(lineas[i].contains("," + clienteCsv + ","), lineas[i]);
+		}
+		assertTrue(csv.toString().contains(",\"'@SUM(A1:A9)\","));
+		assertTrue(csv.toString().contains(",\"'-2+3\","));
+		assertTrue(csv.toString().contains(",\"'\tcmd\","));
+		// Lo que no parece fórmula se deja igual (comillas solo por la coma)
+		assertTrue(csv.toString().contains(",\"Pan, grande\","));
+	}
+
+	private Producto crearProducto(Empresa empresa, String nombre) {
+		return datos.crearProducto(empresa, nombre, 500.0, 10.0);
+	}
+}
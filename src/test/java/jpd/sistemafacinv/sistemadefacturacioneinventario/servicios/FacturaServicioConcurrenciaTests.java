@@ -0,0 +1,103 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.DatosPrueba.facturaDe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.FacturaRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
+
+@SpringBootTest
+class FacturaServicioConcurrenciaTests {
+
+	private static final int CAJEROS = 40;
+	private static final double STOCK_INICIAL = 50;
+	private static final double GRAMOS_POR_UNIDAD = 2;
+
+	@Autowired
+	private FacturaServicio facturaServicio;
+	@Autowired
+	private IngredienteRepositorio ingredienteRepo;
+	@Autowired
+	private FacturaRepositorio facturaRepo;
+	@Autowired
+	private DatosPrueba datos;
+
+	@Test
+	void ventasConcurrentesNoSobrevendenNiRepitenNumero() throws Exception {
+		Empresa empresa = datos.crearEmpresa("concurrencia");
+		Long empresaId = empresa.getId();
+		Ingrediente harina = datos.crearIngrediente(empresa, "Harina", STOCK_INICIAL);
+		Producto pan = datos.crearProductoConReceta(empresa, "Pan", 1000.0, GRAMOS_POR_UNIDAD, harina);
+
+		// Todos los cajeros arrancan a la vez contra el mismo ingrediente
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		CountDownLatch salida = new CountDownLatch(1);
+		// Cada cajero devuelve el número de su factura (null si la venta se rechazó)
+		List<Future<String>> resultados = new ArrayList<>();
+		for (int i = 0; i < CAJEROS; i++) {
+			resultados.add(pool.submit(() -> {
+				salida.await();
+				TenantContext.setCurrentTenant(empresaId);
+				try {
+					return facturaServicio.crearFactura(facturaDe(pan)).getNumeroFactura();
+				} catch (RuntimeException e) {
+					return null;
+				} finally {
+					TenantContext.clear();
+				}
+			}));
+		}
+		salida.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+		int exitosas = 0;
+		Set<String> numeros = new HashSet<>();
+		for (Future<String> resultado : resultados) {
+			String numero = resultado.get();
+			if (numero != null) {
+				exitosas++;
+				assertTrue(numeros.add(numero), "Número repetido: " + numero);
+			}
+		}
+
+		double stockFinal = ingredienteRepo.findById(harina.getId()).orElseThrow().getStockActual();
+		assertEquals(STOCK_INICIAL - exitosas * GRAMOS_POR_UNIDAD, stockFinal, 0.0001);
+		assertTrue(stockFinal >= 0);
+		assertEquals(exitosas, facturaRepo.countByEmpresaId(empresaId));
+		assertEquals((int) (STOCK_INICIAL / GRAMOS_POR_UNIDAD), exitosas);
+
+		// Las ventas rechazadas no consumen número: 1..exitosas, sin huecos ni repetidos (también en BD)
+		Set<String> esperados = new HashSet<>();
+		for (int consecutivo = 1; consecutivo <= exitosas; consecutivo++) {
+			esperados.add(String.format("FAC-%03d-%d", consecutivo, LocalDate.now().getYear()));
+		}
+		assertEquals(esperados, numeros);
+		assertEquals(esperados, facturaRepo.findByEmpresaId(empresaId).stream()
+				.map(Factura::getNumeroFactura)
+				.collect(Collectors.toSet()));
+	}
+
+}
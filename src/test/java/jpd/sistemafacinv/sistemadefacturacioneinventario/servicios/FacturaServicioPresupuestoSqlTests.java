@@ -0,0 +1,71 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.context.PresupuestoSentencias.asegurarMaximo;
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.context.PresupuestoSentencias.asegurarMaximoConsultas;
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.DatosPrueba.facturaDe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+
+/**
+ * Presupuestos de sentencias SQL de las rutas críticas: si alguien introduce
+ * un N+1, el número de sentencias crece con las líneas y el test falla.
+ */
+@SpringBootTest
+class FacturaServicioPresupuestoSqlTests {
+
+	private static final int LINEAS = 10;
+
+	@Autowired
+	private FacturaServicio facturaServicio;
+	@Autowired
+	private ProductoServicio productoServicio;
+	@Autowired
+	private DatosPrueba datos;
+
+	@AfterEach
+	void limpiarTenant() {
+		TenantContext.clear();
+	}
+
+	@Test
+	void facturaDeDiezLineasYGrillaPosDentroDelPresupuesto() {
+		Empresa empresa = datos.crearEmpresa("presupuesto-sql");
+		List<Ingrediente> ingredientes = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			ingredientes.add(datos.crearIngrediente(empresa, "Ingrediente " + i, 10_000));
+		}
+		// Dos ingredientes por receta, compartidos entre platos
+		List<Producto> productos = new ArrayList<>();
+		for (int i = 0; i < LINEAS; i++) {
+			productos.add(datos.crearProductoConReceta(empresa, "Plato " + i, 1000.0, 1,
+					ingredientes.get(i % ingredientes.size()), ingredientes.get((i + 1) % ingredientes.size())));
+		}
+
+		TenantContext.setCurrentTenant(empresa.getId());
+
+		// Grilla del POS: una consulta de recetas para todo el catálogo, no una por producto
+		assertEquals(LINEAS, asegurarMaximoConsultas(2, () -> productoServicio.calcularStockPosible(productos)).size());
+
+		Factura factura = facturaDe(productos.toArray(Producto[]::new));
+		// Lecturas fijas: cierre de ayer, empresa, productos con recetas, secuencia
+		Factura creada = asegurarMaximoConsultas(5, () -> facturaServicio.crearFactura(factura));
+		assertEquals(LINEAS, creada.getFacturaDetalle().size());
+
+		// Escrituras: cabecera + las líneas en un solo lote (IDs de generador_ids), un descuento por ingrediente
+		// y el evento de la bandeja de salida (el resumen diario por ítem se escribe en segundo plano)
+		asegurarMaximo(15, () -> facturaServicio.crearFactura(facturaDe(productos.toArray(Producto[]::new))));
+	}
+}
@@ -0,0 +1,115 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.DatosPrueba.facturaDe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Factura;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.DTO.PaginaFacturasDTO;
+
+/**
+ * Lecturas y mediciones de la facturación: métricas por empresa, resumen de
+ * ventas de hoy y listado paginado por cursor.
+ */
+@SpringBootTest
+class FacturaServicioTests {
+
+	@Autowired
+	private FacturaServicio facturaServicio;
+	@Autowired
+	private DatosPrueba datos;
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@AfterEach
+	void limpiarTenant() {
+		TenantContext.clear();
+	}
+
+	@Test
+	void metricasCuentanVentasYRechazosDeStockPorEmpresa() {
+		Empresa empresa = datos.crearEmpresa("metricas-factura");
+		Producto gaseosa = crearProducto(empresa, 5);
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		facturaServicio.crearFactura(facturaDe(gaseosa, 2));
+		assertThrows(RuntimeException.class, () -> facturaServicio.crearFactura(facturaDe(gaseosa, 10)));
+
+		String empresaTag = empresa.getId().toString();
+		assertEquals(1, meterRegistry.get(MetricasNegocio.FACTURAS)
+				.tags("empresa", empresaTag, "operacion", "crear", "resultado", "ok").timer().count());
+		assertEquals(1, meterRegistry.get(MetricasNegocio.FACTURAS)
+				.tags("empresa", empresaTag, "operacion", "crear", "resultado", "error").timer().count());
+		assertEquals(1, meterRegistry.get(MetricasNegocio.RECHAZOS_STOCK)
+				.tag("empresa", empresaTag).counters().stream().mapToDouble(Counter::count).sum(), 0.0001);
+	}
+
+	@Test
+	void ventasHoySoloCuentaFacturasPagadas() {
+		Empresa empresa = datos.crearEmpresa("ventas-hoy");
+		Producto gaseosa = crearProducto(empresa, 100);
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		double pagado = 0;
+		for (int cantidad = 1; cantidad <= 3; cantidad++) {
+			pagado += facturaServicio.crearFactura(facturaDe(gaseosa, cantidad)).getTotal();
+		}
+		Factura anulada = facturaServicio.crearFactura(facturaDe(gaseosa, 4));
+		facturaServicio.anularFactura(anulada.getId());
+
+		Map<String, Object> ventasHoy = facturaServicio.obtenerResumenVentasHoy();
+		assertEquals(3, ventasHoy.get("cantidadFacturas"));
+		assertEquals(pagado, (double) ventasHoy.get("totalVentas"), 0.0001);
+	}
+
+	@Test
+	void paginacionPorCursorDevuelveCadaFacturaUnaVez() {
+		Empresa empresa = datos.crearEmpresa("paginacion-cursor");
+		Producto gaseosa = crearProducto(empresa, 100);
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		Set<Integer> creadas = new HashSet<>();
+		for (int i = 0; i < 15; i++) {
+			creadas.add(facturaServicio.crearFactura(facturaDe(gaseosa, 1)).getId());
+		}
+
+		Set<Integer> vistas = new HashSet<>();
+		List<Integer> tamanios = new ArrayList<>();
+		String cursor = null;
+		do {
+			PaginaFacturasDTO pagina = facturaServicio.obtenerPaginaFacturas(cursor, 4, null, null, null, true);
+			assertEquals(15, pagina.getTotal());
+			pagina.getFacturas().forEach(f -> assertTrue(vistas.add(f.getId()), "Factura repetida: " + f.getId()));
+			tamanios.add(pagina.getFacturas().size());
+			cursor = pagina.getSiguienteCursor();
+		} while (cursor != null);
+
+		assertEquals(creadas, vistas);
+		assertEquals(List.of(4, 4, 4, 3), tamanios);
+		// Un cursor mal formado vuelve a la primera página
+		assertNull(facturaServicio.obtenerPaginaFacturas("basura", 20, null, null, null, false).getSiguienteCursor());
+	}
+
+	private Producto crearProducto(Empresa empresa, double stock) {
+		return datos.crearProducto(empresa, "Gaseosa", 1000.0, stock);
+	}
+}
@@ -0,0 +1,112 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static jpd.sistemafacinv.sistemadefacturacioneinventario.servicios.DatosPrueba.facturaDe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.context.TenantContext;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+
+/**
+ * Numeración contra MySQL: el primer documento de una empresa que aún no
+ * tiene contador no se queda esperando un gap lock de InnoDB (H2 no los
+ * tiene, por eso este test usa un MySQL real; sin Docker se omite).
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class SecuenciaServicioMySqlTests {
+
+	// Espera de bloqueo corta: si el primer número esperara un gap lock, falla en segundos y no en 50
+	@Container
+	static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+			.withCommand("--innodb-lock-wait-timeout=5");
+
+	@DynamicPropertySource
+	static void baseDeDatos(DynamicPropertyRegistry registro) {
+		registro.add("spring.datasource.url", MYSQL::getJdbcUrl);
+		registro.add("spring.datasource.username", MYSQL::getUsername);
+		registro.add("spring.datasource.password", MYSQL::getPassword);
+		registro.add("spring.datasource.driver-class-name", MYSQL::getDriverClassName);
+	}
+
+	@Autowired
+	private FacturaServicio facturaServicio;
+	@Autowired
+	private SecuenciaServicio secuenciaServicio;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private DatosPrueba datos;
+
+	@AfterEach
+	void limpiarTenant() {
+		TenantContext.clear();
+	}
+
+	@Test
+	void primeraVentaYPrimeraCompraSinContador() {
+		Empresa empresa = datos.crearEmpresa("mysql-primera");
+		Producto gaseosa = datos.crearProducto(empresa, "Gaseosa", 1000.0, 100.0);
+		int anio = LocalDate.now().getYear();
+
+		TenantContext.setCurrentTenant(empresa.getId());
+		assertEquals("FAC-001-" + anio, facturaServicio.crearFactura(facturaDe(gaseosa)).getNumeroFactura());
+		assertEquals("FAC-002-" + anio, facturaServicio.crearFactura(facturaDe(gaseosa)).getNumeroFactura());
+
+		// Otro tipo de documento de la misma empresa, también sin contador
+		Long primeraCompra = new TransactionTemplate(transactionManager).execute(status -> secuenciaServicio
+				.siguienteValor(empresa.getId(), SecuenciaServicio.FACTURA_PROVEEDOR, () -> 0L));
+		assertEquals(1L, primeraCompra);
+	}
+
+	@Test
+	void primerasVentasConcurrentesSinContador() throws Exception {
+		Empresa empresa = datos.crearEmpresa("mysql-concurrente");
+		Producto gaseosa = datos.crearProducto(empresa, "Gaseosa", 1000.0, 100.0);
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		CountDownLatch salida = new CountDownLatch(1);
+		List<Future<String>> numeros = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			numeros.add(pool.submit(() -> {
+				salida.await();
+				return TenantContext.runAs(empresa.getId(),
+						() -> facturaServicio.crearFactura(facturaDe(gaseosa)).getNumeroFactura());
+			}));
+		}
+		salida.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+		Set<String> vistos = new HashSet<>();
+		for (Future<String> numero : numeros) {
+			vistos.add(numero.get());
+		}
+		int anio = LocalDate.now().getYear();
+		assertEquals(Set.of("FAC-001-" + anio, "FAC-002-" + anio, "FAC-003-" + anio, "FAC-004-" + anio), vistos);
+	}
+}
@@ -0,0 +1,52 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Numeración sin huecos: el número se toma en la transacción del documento,
+ * así que un documento revertido no consume número.
+ */
+@SpringBootTest
+class SecuenciaServicioTests {
+
+	@Autowired
+	private SecuenciaServicio secuenciaServicio;
+	@Autowired
+	private DatosPrueba datos;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void documentoRevertidoNoConsumeNumero() {
+		long empresaId = datos.crearEmpresaSinCierre("secuencia").getId();
+		TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+
+		// Continúa desde los documentos existentes la primera vez
+		Long primero = transaccion.execute(status -> secuenciaServicio.siguienteValor(empresaId,
+				SecuenciaServicio.FACTURA, () -> 7L));
+		assertEquals(8L, primero);
+
+		Long revertido = transaccion.execute(status -> {
+			long numero = secuenciaServicio.siguienteValor(empresaId, SecuenciaServicio.FACTURA, () -> 0L);
+			status.setRollbackOnly();
+			return numero;
+		});
+		Long siguiente = transaccion.execute(status -> secuenciaServicio.siguienteValor(empresaId,
+				SecuenciaServicio.FACTURA, () -> 0L));
+		assertEquals(9L, revertido);
+		assertEquals(9L, siguiente);
+		assertEquals(9L, secuenciaServicio.ultimoValorReservado(empresaId, SecuenciaServicio.FACTURA));
+
+		// Fuera de una transacción no hay documento al que atar el número
+		assertThrows(IllegalTransactionStateException.class,
+				() -> secuenciaServicio.siguienteValor(empresaId, SecuenciaServicio.FACTURA, () -> 0L));
+	}
+}
@@ -0,0 +1,54 @@
+package jpd.sistemafacinv.sistemadefacturacioneinventario.servicios;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Empresa;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Ingrediente;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.modelos.Producto;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.IngredienteRepositorio;
+import jpd.sistemafacinv.sistemadefacturacioneinventario.repositorios.ProductoRepositorio;
+
+/**
+ * Stock posible con varios nodos: un cambio de stock hecho en otro nodo no
+ * invalida la caché de este, pero se ve cuando vence la entrada.
+ */
+@SpringBootTest
+class StockPosibleCacheTests {
+
+	@Autowired
+	private ProductoRepositorio productoRepo;
+	@Autowired
+	private IngredienteRepositorio ingredienteRepo;
+	@Autowired
+	private DatosPrueba datos;
+
+	@Test
+	void cambioDeOtroNodoSeVeAlVencerLaEntrada() {
+		Empresa empresa = datos.crearEmpresa("stock-posible-vigencia");
+		Ingrediente harina = datos.crearIngrediente(empresa, "Harina", 1000);
+		Producto pan = datos.crearProductoConReceta(empresa, "Pan", 1000.0, 100, harina);
+		StockPosibleCache cache = new StockPosibleCache(productoRepo);
+		ReflectionTestUtils.setField(cache, "vigenciaSegundos", 1L);
+		List<Long> ids = List.of(pan.getId());
+
+		assertEquals(Map.of(pan.getId(), 10), cache.obtener(empresa.getId(), ids));
+
+		// Venta en otro nodo: baja la harina sin pasar por esta caché
+		harina.setStockActual(500);
+		ingredienteRepo.save(harina);
+		assertEquals(Map.of(pan.getId(), 10), cache.obtener(empresa.getId(), ids));
+
+		await().atMost(5, TimeUnit.SECONDS).pollInterval(200, TimeUnit.MILLISECONDS)
+				.untilAsserted(() -> assertEquals(Map.of(pan.getId(), 5), cache.obtener(empresa.getId(), ids)));
+	}
+}